@@ -6,10 +6,12 @@ import com.teufel.statusmod.storage.CustomPresets;
 import com.teufel.statusmod.storage.ModConfig;
 import com.teufel.statusmod.storage.MutedPlayers;
 import com.teufel.statusmod.storage.SettingsStorage;
+import com.teufel.statusmod.storage.StorageEngine;
 import com.teufel.statusmod.registry.ModRegistries;
 import com.teufel.statusmod.network.ModNetworking;
 import com.teufel.statusmod.platform.Platform;
 import com.teufel.statusmod.platform.PlatformServices;
+import com.teufel.statusmod.util.CompatAccessors;
 
 public final class StatusMod {
     public static final String MOD_ID = "statusmod";
@@ -39,6 +41,7 @@ public final class StatusMod {
             customPresets = new CustomPresets();
         }
         AuditLogger.init();
+        CompatAccessors.init();
 
         ModRegistries.init();
         ModNetworking.init();
@@ -48,6 +51,11 @@ public final class StatusMod {
         platform.registerBlock("status_block");
     }
 
+    public static void shutdown() {
+        StorageEngine.get().drain();
+        AuditLogger.drain();
+    }
+
     public static ModConfig getConfig() {
         return config;
     }
@@ -12,23 +12,25 @@ import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 
+import java.util.UUID;
+
 public class BlockCommand {
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
         dispatcher.register(Commands.literal("block").then(Commands.argument("player", EntityArgument.player()).executes(ctx -> {
             CommandSourceStack src = ctx.getSource();
             ServerPlayer target = EntityArgument.getPlayer(ctx, "player");
-            blockPlayer(src, target.getUUID().toString(), target.getScoreboardName());
+            blockPlayer(src, target.getUUID(), target.getScoreboardName());
             return 1;
         })));
         dispatcher.register(Commands.literal("unblock").then(Commands.argument("player", EntityArgument.player()).executes(ctx -> {
             CommandSourceStack src = ctx.getSource();
             ServerPlayer target = EntityArgument.getPlayer(ctx, "player");
-            unblockPlayer(src, target.getUUID().toString(), target.getScoreboardName());
+            unblockPlayer(src, target.getUUID(), target.getScoreboardName());
             return 1;
         })));
     }
 
-    private static void blockPlayer(CommandSourceStack src, String uuid, String playerName) {
+    private static void blockPlayer(CommandSourceStack src, UUID uuid, String playerName) {
         try {
             if (!PermissionUtil.hasAdminPermission(src)) {
                 src.sendFailure(Component.literal("Du hast keine Berechtigung für diesen Befehl."));
@@ -45,10 +47,10 @@ public class BlockCommand {
             }
             StatusMod.getBlockedPlayers().block(uuid);
             AuditLogger.logBlock(src.getTextName(), playerName);
-            PlayerSettings settings = StatusMod.getStorage().forPlayer(uuid);
+            PlayerSettings settings = StatusMod.getStorage().forPlayer(uuid.toString());
             settings.status = "";
             settings.color = StatusMod.getConfig() != null && StatusMod.getConfig().defaultColor != null ? StatusMod.getConfig().defaultColor : "reset";
-            StatusMod.getStorage().put(uuid, settings);
+            StatusMod.getStorage().put(uuid.toString(), settings);
             CommandUtil.sendSuccess(src, Component.literal(playerName + " wurde vom Status-Mod blockiert."), true);
             targetPlayer.sendSystemMessage(Component.literal("Du wurdest vom Status-Mod blockiert."));
         } catch (Exception e) {
@@ -57,14 +59,14 @@ public class BlockCommand {
         }
     }
 
-    private static void unblockPlayer(CommandSourceStack src, String uuid, String playerName) {
+    private static void unblockPlayer(CommandSourceStack src, UUID uuid, String playerName) {
         try {
             if (!PermissionUtil.hasAdminPermission(src)) {
                 src.sendFailure(Component.literal("Du hast keine Berechtigung für diesen Befehl."));
                 return;
             }
             ServerPlayer targetPlayer = src.getServer().getPlayerList().getPlayerByName(playerName);
-            String targetUuid = targetPlayer != null ? targetPlayer.getUUID().toString() : uuid;
+            UUID targetUuid = targetPlayer != null ? targetPlayer.getUUID() : uuid;
             if (!StatusMod.getBlockedPlayers().isBlocked(targetUuid)) {
                 src.sendFailure(Component.literal(playerName + " ist nicht blockiert."));
                 return;
@@ -33,12 +33,12 @@ public class ColorCommand {
                 return;
             }
             String uuid = player.getUUID().toString();
-            if (StatusMod.getBlockedPlayers().isBlocked(uuid)) {
+            if (StatusMod.getBlockedPlayers().isBlocked(player.getUUID())) {
                 src.sendFailure(Component.literal("Du wurdest vom Status-Mod blockiert."));
                 return;
             }
-            if (StatusMod.getMutedPlayers().isMuted(uuid)) {
-                long until = StatusMod.getMutedPlayers().getMutedUntil(uuid);
+            if (StatusMod.getMutedPlayers().isMuted(player.getUUID())) {
+                long until = StatusMod.getMutedPlayers().getMutedUntil(player.getUUID());
                 long remaining = Math.max(1, (until - System.currentTimeMillis()) / 1000L);
                 src.sendFailure(Component.literal("Du bist noch " + remaining + "s vom Status-Mod gestummt."));
                 return;
@@ -1,6 +1,8 @@
 package com.teufel.statusmod.command;
 
 import com.teufel.statusmod.StatusMod;
+import com.teufel.statusmod.storage.StorageBackend;
+import com.teufel.statusmod.storage.StorageBackends;
 import com.teufel.statusmod.util.ColorMapper;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.context.CommandContext;
@@ -24,6 +26,8 @@ public final class CommandSuggestions {
             builder.suggest("reset");
             builder.suggest("#RRGGBB");
             builder.suggest("rainbow");
+            builder.suggest("gradient:#ff0000:#0000ff");
+            builder.suggest("gradient:#ff0000:#00ff00:#0000ff:5");
         } catch (Exception ignored) {}
         return CompletableFuture.completedFuture(builder.build());
     };
@@ -39,6 +43,7 @@ public final class CommandSuggestions {
         } catch (Exception ignored) {}
         return CompletableFuture.completedFuture(builder.build());
     };
+    public static final SuggestionProvider<CommandSourceStack> STORAGE_BACKEND_SUGGESTIONS = (context, builder) -> SharedSuggestionProvider.suggest(StorageBackends.discover().stream().map(StorageBackend::getId), builder);
     public static final SuggestionProvider<CommandSourceStack> FONT_SUGGESTIONS = (context, builder) -> SharedSuggestionProvider.suggest(new String[]{"normal","smallcaps","bold"}, builder);
     public static final SuggestionProvider<CommandSourceStack> CUSTOM_PRESET_SUGGESTIONS = (context, builder) -> {
         try {
@@ -55,7 +60,7 @@ public final class CommandSuggestions {
             if (src != null && StatusMod.getStorage() != null) {
                 var p = src.getPlayer();
                 if (p != null) {
-                    var s = StatusMod.getStorage().forPlayer(p.getUUID().toString());
+                    var s = StatusMod.getStorage().peek(p.getUUID().toString());
                     if (s != null && s.statusHistory != null) {
                         for (String h : s.statusHistory) {
                             if (h != null && !h.isBlank()) builder.suggest(h);
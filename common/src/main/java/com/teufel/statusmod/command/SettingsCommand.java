@@ -40,8 +40,8 @@ public class SettingsCommand {
             if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; }
             if (p == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; }
             String uuid = p.getUUID().toString();
-            if (StatusMod.getBlockedPlayers().isBlocked(uuid)) { src.sendFailure(Component.literal("Du wurdest vom Status-Mod blockiert.")); return; }
-            if (StatusMod.getMutedPlayers().isMuted(uuid)) { src.sendFailure(Component.literal("Du bist vom Status-Mod gestummt.")); return; }
+            if (StatusMod.getBlockedPlayers().isBlocked(p.getUUID())) { src.sendFailure(Component.literal("Du wurdest vom Status-Mod blockiert.")); return; }
+            if (StatusMod.getMutedPlayers().isMuted(p.getUUID())) { src.sendFailure(Component.literal("Du bist vom Status-Mod gestummt.")); return; }
             PlayerSettings s = StatusMod.getStorage().forPlayer(uuid);
             mutator.accept(s);
             StatusMod.getStorage().put(uuid, s);
@@ -5,12 +5,20 @@ import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.teufel.statusmod.StatusMod;
+import com.teufel.statusmod.lifecycle.Deadlines;
+import com.teufel.statusmod.lifecycle.StatusLifecycle;
 import com.teufel.statusmod.storage.AuditLogger;
+import com.teufel.statusmod.storage.AuditQuery;
+import com.teufel.statusmod.storage.AuditReader;
 import com.teufel.statusmod.storage.ModConfig;
 import com.teufel.statusmod.storage.PlayerSettings;
+import com.teufel.statusmod.storage.StorageBackend;
+import com.teufel.statusmod.storage.StorageBackends;
+import com.teufel.statusmod.storage.StorageEngine;
 import com.teufel.statusmod.util.ColorMapper;
 import com.teufel.statusmod.util.CommandUtil;
 import com.teufel.statusmod.util.FontMapper;
+import com.teufel.statusmod.util.Perf;
 import com.teufel.statusmod.util.PermissionUtil;
 import com.teufel.statusmod.util.StatusTeamUtil;
 import com.teufel.statusmod.util.StatusTextUtil;
@@ -21,15 +29,13 @@ import net.minecraft.network.chat.TextColor;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class StatusCommand {
     private static final int MAX_STATUS_LENGTH = 64;
+    private static final int AUDIT_PAGE_SIZE = 25;
     private static final Map<String, Preset> PRESETS = new HashMap<>();
     static {
         PRESETS.put("afk", new Preset("AFK", "yellow", "normal"));
@@ -58,10 +64,18 @@ public class StatusCommand {
                 .then(Commands.literal("set").then(Commands.argument("player", net.minecraft.commands.arguments.EntityArgument.player()).then(Commands.argument("status", StringArgumentType.greedyString()).suggests(CommandSuggestions.STATUS_SUGGESTIONS).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte, um andere Spieler zu verwalten.")); return 0; } ServerPlayer player = net.minecraft.commands.arguments.EntityArgument.getPlayer(ctx, "player"); adminSetStatus(ctx.getSource(), player.getScoreboardName(), StringArgumentType.getString(ctx, "status"), null); return 1; }))))
                 .then(Commands.literal("mute").then(Commands.argument("player", net.minecraft.commands.arguments.EntityArgument.player()).then(Commands.argument("minutes", IntegerArgumentType.integer(1, 1440)).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } ServerPlayer target = net.minecraft.commands.arguments.EntityArgument.getPlayer(ctx, "player"); int mins = IntegerArgumentType.getInteger(ctx, "minutes"); mutePlayer(ctx.getSource(), target, mins); return 1; }))))
                 .then(Commands.literal("unmute").then(Commands.argument("player", net.minecraft.commands.arguments.EntityArgument.player()).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } ServerPlayer target = net.minecraft.commands.arguments.EntityArgument.getPlayer(ctx, "player"); unmutePlayer(ctx.getSource(), target); return 1; })))
-                .then(Commands.literal("audit").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } showAuditLog(ctx.getSource()); return 1; }))
+                .then(Commands.literal("audit").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } showAuditLog(ctx.getSource(), 1); return 1; })
+                    .then(Commands.argument("page", IntegerArgumentType.integer(1)).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } showAuditLog(ctx.getSource(), IntegerArgumentType.getInteger(ctx, "page")); return 1; }))
+                    .then(Commands.literal("query").then(Commands.argument("filter", StringArgumentType.greedyString()).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } queryAuditLog(ctx.getSource(), StringArgumentType.getString(ctx, "filter")); return 1; }))))
+                .then(Commands.literal("resync").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } int n = StatusLifecycle.resyncAll(ctx.getSource().getServer()); CommandUtil.sendSuccess(ctx.getSource(), Component.literal("Status von " + n + " Spielern neu übertragen."), false); return 1; }))
+                .then(Commands.literal("flush").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } flushStorage(ctx.getSource()); return 1; }))
+                .then(Commands.literal("storage").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } showStorageStats(ctx.getSource()); return 1; })
+                    .then(Commands.literal("migrate").then(Commands.argument("backend", StringArgumentType.word()).suggests(CommandSuggestions.STORAGE_BACKEND_SUGGESTIONS).executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } migrateStorage(ctx.getSource(), StringArgumentType.getString(ctx, "backend")); return 1; }))))
             );
         }
-        statusTree = statusTree.then(Commands.literal("config").then(Commands.literal("reload").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte, um diese Aktion auszuführen.")); return 0; } StatusMod.config = ModConfig.load(); CommandUtil.sendSuccess(ctx.getSource(), Component.literal("StatusMod configuration reloaded."), false); return 1; }))
+        statusTree = statusTree.then(Commands.literal("debug").then(Commands.literal("perf").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } showPerfStats(ctx.getSource()); return 1; })
+            .then(Commands.literal("reset").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte.")); return 0; } Perf.reset(); CommandUtil.sendSuccess(ctx.getSource(), Component.literal("Performance-Statistik zurückgesetzt."), false); return 1; }))));
+        statusTree = statusTree.then(Commands.literal("config").then(Commands.literal("reload").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte, um diese Aktion auszuführen.")); return 0; } CommandSourceStack src = ctx.getSource(); ModConfig.loadAsync().thenAccept(cfg -> src.getServer().execute(() -> { StatusMod.config = cfg; CommandUtil.sendSuccess(src, Component.literal("StatusMod configuration reloaded."), false); })); return 1; }))
             .then(Commands.literal("show").executes(ctx -> { if (!PermissionUtil.hasAdminPermission(ctx.getSource())) { ctx.getSource().sendFailure(Component.literal("Du hast nicht genügend Rechte, um diese Aktion auszuführen.")); return 0; } ModConfig c = StatusMod.getConfig(); CommandUtil.sendSuccess(ctx.getSource(), Component.literal("StatusMod configuration:"), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" adminOpLevel = " + c.adminOpLevel), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" statusPermissionNode = " + c.statusPermissionNode), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" adminPermissionNode = " + c.adminPermissionNode), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" enableAdminOverrides = " + c.enableAdminOverrides), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" defaultColor = " + c.defaultColor), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" statusReapplyTicks = " + c.statusReapplyTicks), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" statusCooldownSeconds = " + c.statusCooldownSeconds), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" statusHistorySize = " + c.statusHistorySize), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" enableStaffBadge = " + c.enableStaffBadge), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" staffBadgeText = " + c.staffBadgeText), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" staffBadgeColor = " + c.staffBadgeColor), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" enableAutoAfk = " + c.enableAutoAfk), false); CommandUtil.sendSuccess(ctx.getSource(), Component.literal(" afkTimeoutSeconds = " + c.afkTimeoutSeconds), false); return 1; })));
         dispatcher.register(statusTree);
     }
@@ -72,7 +86,7 @@ public class StatusCommand {
             if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; }
             if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung, den Status-Mod zu nutzen.")); return; }
             String uuid = player.getUUID().toString();
-            if (checkBlockedOrMuted(src, uuid)) return;
+            if (checkBlockedOrMuted(src, player.getUUID())) return;
             PlayerSettings settings = StatusMod.getStorage().forPlayer(uuid);
             if (!checkCooldown(src, settings)) return;
             StatusUpdate update = parseStatusInput(status, colorKey, settings);
@@ -83,7 +97,7 @@ public class StatusCommand {
         } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Setzen des Status.")); } catch(Exception ignore){} e.printStackTrace(); }
     }
 
-    private static void clearStatus(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } String uuid = player.getUUID().toString(); if (checkBlockedOrMuted(src, uuid)) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(uuid); if (!checkCooldown(src, settings)) return; settings.status=""; settings.color="reset"; settings.statusExpiresAtMs=0L; StatusMod.getStorage().put(uuid, settings); StatusTeamUtil.applyStatus(src.getServer().getScoreboard(), player, settings, "", "reset", PermissionUtil.hasAdminPermission(player)); AuditLogger.logClear(player.getScoreboardName(), player.getScoreboardName()); CommandUtil.sendSuccess(src, Component.literal("Status gelöscht."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Löschen des Status."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void clearStatus(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } String uuid = player.getUUID().toString(); if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(uuid); if (!checkCooldown(src, settings)) return; settings.status=""; settings.color="reset"; settings.statusExpiresAtMs=0L; StatusMod.getStorage().put(uuid, settings); StatusTeamUtil.applyStatus(src.getServer().getScoreboard(), player, settings, "", "reset", PermissionUtil.hasAdminPermission(player)); AuditLogger.logClear(player.getScoreboardName(), player.getScoreboardName()); CommandUtil.sendSuccess(src, Component.literal("Status gelöscht."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Löschen des Status."));}catch(Exception ignore){} e.printStackTrace();}}
 
     private static void adminSetStatus(CommandSourceStack src, String targetName, String status, String colorKey) { try { ServerPlayer target = src.getServer().getPlayerList().getPlayerByName(targetName); if (target == null) { src.sendFailure(Component.literal("Spieler '" + targetName + "' ist nicht online.")); return; } PlayerSettings settings = StatusMod.getStorage().forPlayer(target.getUUID().toString()); StatusUpdate update = parseStatusInput(status, colorKey, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } applyStatusUpdate(src, target, settings, update, false, null, false); String who = src.getTextName(); AuditLogger.logSet(who, targetName, update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("Status von " + targetName + " gesetzt: " + update.status + " (" + update.color + ")"), false); target.sendSystemMessage(Component.literal("Dein Status wurde von einem Administrator gesetzt."));} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des Status für '" + targetName + "'."));}catch(Exception ignore){} e.printStackTrace();}}
     private static void adminClearStatus(CommandSourceStack src, String targetName) { try { ServerPlayer target = src.getServer().getPlayerList().getPlayerByName(targetName); if (target == null) { src.sendFailure(Component.literal("Spieler '" + targetName + "' ist nicht online.")); return; } PlayerSettings settings = StatusMod.getStorage().forPlayer(target.getUUID().toString()); settings.status=""; settings.color="reset"; settings.statusExpiresAtMs=0L; StatusMod.getStorage().put(target.getUUID().toString(), settings); StatusTeamUtil.applyStatus(src.getServer().getScoreboard(), target, settings, "", "reset", PermissionUtil.hasAdminPermission(target)); String who = src.getTextName(); AuditLogger.logClear(who, targetName); CommandUtil.sendSuccess(src, Component.literal("Status von " + targetName + " gelöscht."), false); target.sendSystemMessage(Component.literal("Dein Status wurde von einem Administrator gelöscht."));} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Löschen des Status für '" + targetName + "'."));}catch(Exception ignore){} e.printStackTrace();}}
@@ -97,7 +111,7 @@ public class StatusCommand {
                 if (custom != null) {
                     ServerPlayer player = src.getPlayer();
                     if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; }
-                    if (checkBlockedOrMuted(src, player.getUUID().toString())) return;
+                    if (checkBlockedOrMuted(src, player.getUUID())) return;
                     PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString());
                     if (!checkCooldown(src, settings)) return;
                     StatusUpdate update = new StatusUpdate(custom.status, custom.color, settings.fontStyle, true, null);
@@ -111,7 +125,7 @@ public class StatusCommand {
             }
             ServerPlayer player = src.getPlayer();
             if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; }
-            if (checkBlockedOrMuted(src, player.getUUID().toString())) return;
+            if (checkBlockedOrMuted(src, player.getUUID())) return;
             PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString());
             if (!checkCooldown(src, settings)) return;
             StatusUpdate update = new StatusUpdate(preset.status, preset.color, preset.font, true, null);
@@ -120,11 +134,11 @@ public class StatusCommand {
             CommandUtil.sendSuccess(src, Component.literal("Preset gesetzt: " + preset.status + " (" + preset.color + ")"), false);
         } catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des Presets."));}catch(Exception ignore){} e.printStackTrace();}
     }
-    private static void setRandomStatus(CommandSourceStack src, String statusInput) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID().toString())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, null, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } update.color = pickStableRandomColor(player.getUUID().toString()); applyStatusUpdate(src, player, settings, update, false, null, false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("Status gesetzt (random): " + update.status + " (" + update.color + ")"), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des random Status."));}catch(Exception ignore){} e.printStackTrace();}}
-    private static void setTimedStatus(CommandSourceStack src, int minutes, String statusInput) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID().toString())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, null, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } applyStatusUpdate(src, player, settings, update, false, System.currentTimeMillis() + (minutes * 60L * 1000L), false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("Status gesetzt für " + minutes + " Minuten."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des Timed-Status."));}catch(Exception ignore){} e.printStackTrace();}}
-    private static void setWorldStatus(CommandSourceStack src, String statusInput, String colorKey) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID().toString())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, colorKey, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } applyStatusUpdate(src, player, settings, update, true, null, false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("World-Status gesetzt."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des World-Status."));}catch(Exception ignore){} e.printStackTrace();}}
-    private static void clearWorldStatus(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID().toString())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; String key = com.teufel.statusmod.util.CompatUtil.getWorldKey(player); if (key != null) { if (settings.statusByWorld != null) settings.statusByWorld.remove(key); if (settings.colorByWorld != null) settings.colorByWorld.remove(key); StatusMod.getStorage().put(player.getUUID().toString(), settings); StatusTeamUtil.applyStatus(src.getServer().getScoreboard(), player, settings, StatusTextUtil.resolveStatusForPlayer(settings, player), StatusTextUtil.resolveColorForPlayer(settings, player), PermissionUtil.hasAdminPermission(player)); } AuditLogger.logClear(player.getScoreboardName(), player.getScoreboardName()); CommandUtil.sendSuccess(src, Component.literal("World-Status gelöscht."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Löschen des World-Status."));}catch(Exception ignore){} e.printStackTrace();}}
-    private static void showHistory(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID().toString())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); CommandUtil.sendSuccess(src, Component.literal("Status-Verlauf:"), false); if (settings.statusHistory == null || settings.statusHistory.isEmpty()) { CommandUtil.sendSuccess(src, Component.literal("- (leer)"), false); return; } for (String h : settings.statusHistory) { if (h == null || h.isBlank()) continue; CommandUtil.sendSuccess(src, Component.literal("- " + h), false); } } catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Anzeigen des Verlaufs."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void setRandomStatus(CommandSourceStack src, String statusInput) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, null, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } update.color = pickStableRandomColor(player.getUUID().toString()); applyStatusUpdate(src, player, settings, update, false, null, false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("Status gesetzt (random): " + update.status + " (" + update.color + ")"), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des random Status."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void setTimedStatus(CommandSourceStack src, int minutes, String statusInput) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, null, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } applyStatusUpdate(src, player, settings, update, false, System.currentTimeMillis() + (minutes * 60L * 1000L), false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("Status gesetzt für " + minutes + " Minuten."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des Timed-Status."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void setWorldStatus(CommandSourceStack src, String statusInput, String colorKey) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; StatusUpdate update = parseStatusInput(statusInput, colorKey, settings); if (!update.ok) { src.sendFailure(Component.literal(update.error)); return; } applyStatusUpdate(src, player, settings, update, true, null, false); AuditLogger.logSet(player.getScoreboardName(), player.getScoreboardName(), update.status, update.color); CommandUtil.sendSuccess(src, Component.literal("World-Status gesetzt."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Setzen des World-Status."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void clearWorldStatus(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); if (!checkCooldown(src, settings)) return; String key = com.teufel.statusmod.util.CompatUtil.getWorldKey(player); if (key != null) { settings.clearWorldOverride(key); StatusMod.getStorage().put(player.getUUID().toString(), settings); StatusTeamUtil.applyStatus(src.getServer().getScoreboard(), player, settings, StatusTextUtil.resolveStatusForPlayer(settings, player), StatusTextUtil.resolveColorForPlayer(settings, player), PermissionUtil.hasAdminPermission(player)); } AuditLogger.logClear(player.getScoreboardName(), player.getScoreboardName()); CommandUtil.sendSuccess(src, Component.literal("World-Status gelöscht."), false);} catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Löschen des World-Status."));}catch(Exception ignore){} e.printStackTrace();}}
+    private static void showHistory(CommandSourceStack src) { try { ServerPlayer player = src.getPlayer(); if (player == null) { src.sendFailure(Component.literal("Nur Spieler können diesen Befehl nutzen.")); return; } if (!PermissionUtil.hasStatusPermission(src)) { src.sendFailure(Component.literal("Du hast keine Berechtigung.")); return; } if (checkBlockedOrMuted(src, player.getUUID())) return; PlayerSettings settings = StatusMod.getStorage().forPlayer(player.getUUID().toString()); CommandUtil.sendSuccess(src, Component.literal("Status-Verlauf:"), false); if (settings.statusHistory == null || settings.statusHistory.isEmpty()) { CommandUtil.sendSuccess(src, Component.literal("- (leer)"), false); return; } for (String h : settings.statusHistory) { if (h == null || h.isBlank()) continue; CommandUtil.sendSuccess(src, Component.literal("- " + h), false); } } catch (Exception e){try{src.sendFailure(Component.literal("Fehler beim Anzeigen des Verlaufs."));}catch(Exception ignore){} e.printStackTrace();}}
 
     private static void saveCustomPreset(CommandSourceStack src, String name, String status, String colorKey) {
         try {
@@ -180,7 +194,8 @@ public class StatusCommand {
     private static void mutePlayer(CommandSourceStack src, ServerPlayer target, int minutes) {
         try {
             String uuid = target.getUUID().toString();
-            StatusMod.getMutedPlayers().mute(uuid, minutes);
+            StatusMod.getMutedPlayers().mute(target.getUUID(), minutes);
+            Deadlines.scheduleMuteExpiry(uuid, StatusMod.getMutedPlayers().getMutedUntil(target.getUUID()));
             String who = src.getTextName();
             AuditLogger.logMute(who, target.getScoreboardName(), minutes);
             CommandUtil.sendSuccess(src, Component.literal(target.getScoreboardName() + " wurde für " + minutes + " Minuten gestummt."), true);
@@ -191,7 +206,8 @@ public class StatusCommand {
     private static void unmutePlayer(CommandSourceStack src, ServerPlayer target) {
         try {
             String uuid = target.getUUID().toString();
-            StatusMod.getMutedPlayers().unmute(uuid);
+            StatusMod.getMutedPlayers().unmute(target.getUUID());
+            Deadlines.cancelMuteExpiry(uuid);
             String who = src.getTextName();
             AuditLogger.logUnmute(who, target.getScoreboardName());
             CommandUtil.sendSuccess(src, Component.literal(target.getScoreboardName() + " wurde entstummt."), true);
@@ -199,25 +215,87 @@ public class StatusCommand {
         } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Entmuten.")); } catch(Exception ignore){} e.printStackTrace(); }
     }
 
-    private static void showAuditLog(CommandSourceStack src) {
+    private static void showAuditLog(CommandSourceStack src, int page) {
         try {
-            java.nio.file.Path path = Paths.get("config/statusmod/audit.log");
-            if (!Files.exists(path)) {
-                CommandUtil.sendSuccess(src, Component.literal("Audit-Log ist leer."), false);
+            var server = src.getServer();
+            StorageEngine.get().supply(() -> AuditReader.readPage(page, AUDIT_PAGE_SIZE)).whenComplete((result, err) -> server.execute(() -> {
+                if (err != null) {
+                    src.sendFailure(Component.literal("Fehler beim Lesen des Audit-Logs."));
+                    err.printStackTrace();
+                    return;
+                }
+                if (result.lines.isEmpty()) {
+                    CommandUtil.sendSuccess(src, Component.literal(page == 1 ? "Audit-Log ist leer." : "Keine Einträge auf Seite " + page + "."), false);
+                    return;
+                }
+                CommandUtil.sendSuccess(src, Component.literal("--- Audit-Log, Seite " + page + " (max " + AUDIT_PAGE_SIZE + ") ---"), false);
+                for (String line : result.lines) CommandUtil.sendSuccess(src, Component.literal(line), false);
+                if (result.hasMore) CommandUtil.sendSuccess(src, Component.literal("Ältere Einträge: /status admin audit " + (page + 1)), false);
+            }));
+        } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Lesen des Audit-Logs.")); } catch(Exception ignore){} e.printStackTrace(); }
+    }
+
+    private static void queryAuditLog(CommandSourceStack src, String filter) {
+        try {
+            AuditQuery query;
+            try {
+                query = AuditQuery.parse(filter, System.currentTimeMillis());
+            } catch (IllegalArgumentException e) {
+                src.sendFailure(Component.literal(e.getMessage()));
                 return;
             }
-            List<String> lines = Files.readAllLines(path);
-            int start = Math.max(0, lines.size() - 25);
-            CommandUtil.sendSuccess(src, Component.literal("--- Letzte Einträge (max 25) ---"), false);
-            for (int i = start; i < lines.size(); i++) {
-                CommandUtil.sendSuccess(src, Component.literal(lines.get(i)), false);
+            var server = src.getServer();
+            StorageEngine.get().supply(() -> AuditReader.query(query, AUDIT_PAGE_SIZE)).whenComplete((result, err) -> server.execute(() -> {
+                if (err != null) {
+                    src.sendFailure(Component.literal("Fehler beim Durchsuchen des Audit-Logs."));
+                    err.printStackTrace();
+                    return;
+                }
+                if (result.lines.isEmpty()) {
+                    CommandUtil.sendSuccess(src, Component.literal("Keine passenden Audit-Einträge gefunden."), false);
+                    return;
+                }
+                CommandUtil.sendSuccess(src, Component.literal("--- Audit-Suche: " + result.lines.size() + (result.hasMore ? " neueste Treffer (weitere vorhanden)" : " Treffer") + " ---"), false);
+                for (String line : result.lines) CommandUtil.sendSuccess(src, Component.literal(line), false);
+            }));
+        } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Durchsuchen des Audit-Logs.")); } catch(Exception ignore){} e.printStackTrace(); }
+    }
+
+    private static void showStorageStats(CommandSourceStack src) {
+        try {
+            var stats = StatusMod.getStorage().getCacheStats();
+            ModConfig c = StatusMod.getConfig();
+            CommandUtil.sendSuccess(src, Component.literal("--- StatusMod Storage ---"), false);
+            CommandUtil.sendSuccess(src, Component.literal(" Backend: " + StatusMod.getStorage().getBackendId() + ", Modus: " + (c == null ? "snapshot" : c.storageMode) + ", ausstehende Änderungen: " + (StatusMod.getStorage().isDirty() ? "ja" : "nein")), false);
+            CommandUtil.sendSuccess(src, Component.literal(" Cache: " + stats.size + (stats.capacity > 0 ? " / " + stats.capacity : " (unbegrenzt)")), false);
+            CommandUtil.sendSuccess(src, Component.literal(" Treffer: " + stats.hits + ", Fehlzugriffe: " + stats.misses + ", Verdrängt: " + stats.evictions + String.format(" (Trefferquote %.1f%%)", stats.hitRate() * 100.0)), false);
+            CommandUtil.sendSuccess(src, Component.literal(" Audit: " + AuditLogger.getDroppedCount() + " Einträge verworfen (Puffer voll)"), false);
+        } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Anzeigen der Storage-Statistik.")); } catch(Exception ignore){} e.printStackTrace(); }
+    }
+
+    private static void showPerfStats(CommandSourceStack src) {
+        try {
+            long seconds = Math.max(0L, (System.currentTimeMillis() - Perf.sinceMs()) / 1000L);
+            CommandUtil.sendSuccess(src, Component.literal("--- StatusMod Performance (seit " + seconds + "s) ---"), false);
+            if (!Perf.isEnabled()) CommandUtil.sendSuccess(src, Component.literal("§eMessung ist aus; perfStats in der Konfiguration aktivieren."), false);
+            for (Perf.Phase phase : Perf.Phase.values()) {
+                var h = phase.histogram();
+                if (h.count() == 0) continue;
+                CommandUtil.sendSuccess(src, Component.literal(" " + phase.label + ": " + h.count() + "x, p50 " + formatNanos(h.percentile(50)) + ", p99 " + formatNanos(h.percentile(99)) + ", max " + formatNanos(h.max())), false);
             }
-        } catch (IOException e) {
-            src.sendFailure(Component.literal("Fehler beim Lesen des Audit-Logs."));
-        }
+            for (Perf.Counter counter : Perf.Counter.values()) {
+                CommandUtil.sendSuccess(src, Component.literal(" " + counter.label + ": " + counter.get()), false);
+            }
+        } catch (Exception e) { try { src.sendFailure(Component.literal("Fehler beim Anzeigen der Performance-Statistik.")); } catch(Exception ignore){} e.printStackTrace(); }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000L) return nanos + " ns";
+        if (nanos < 1_000_000L) return String.format("%.1f µs", nanos / 1_000.0);
+        return String.format("%.2f ms", nanos / 1_000_000.0);
     }
 
-    private static boolean checkBlockedOrMuted(CommandSourceStack src, String uuid) {
+    private static boolean checkBlockedOrMuted(CommandSourceStack src, java.util.UUID uuid) {
         if (StatusMod.getBlockedPlayers().isBlocked(uuid)) {
             src.sendFailure(Component.literal("Du wurdest vom Status-Mod blockiert."));
             return true;
@@ -232,8 +310,8 @@ public class StatusCommand {
     }
 
     static boolean checkCooldown(CommandSourceStack src, PlayerSettings settings) { try { int cooldown = StatusMod.getConfig() == null ? 0 : StatusMod.getConfig().statusCooldownSeconds; if (cooldown <= 0) return true; if (PermissionUtil.hasAdminPermission(src)) return true; long remaining = (settings.lastStatusChangeAtMs + (cooldown * 1000L)) - System.currentTimeMillis(); if (remaining > 0) { src.sendFailure(Component.literal("Bitte warte " + Math.max(1, remaining / 1000L) + "s bevor du den Status erneut änderst.")); return false; } } catch (Exception ignored) { return false; } return true; }
-    private static void applyStatusUpdate(CommandSourceStack src, ServerPlayer player, PlayerSettings settings, StatusUpdate update, boolean perWorld, Long expiresAtMs, boolean keepFont) { if (player == null || settings == null || update == null) return; if (!keepFont && update.font != null && !update.font.isEmpty()) settings.fontStyle = FontMapper.normalizeStyle(update.font); if (perWorld) { String key = com.teufel.statusmod.util.CompatUtil.getWorldKey(player); if (key != null) { if (settings.statusByWorld != null) settings.statusByWorld.put(key, update.status); if (settings.colorByWorld != null) settings.colorByWorld.put(key, update.color); } } else { settings.status = update.status; settings.color = update.color; } if (expiresAtMs != null) settings.statusExpiresAtMs = expiresAtMs; settings.lastStatusChangeAtMs = System.currentTimeMillis(); addHistory(settings, update.status); StatusMod.getStorage().put(player.getUUID().toString(), settings); var server = src.getServer(); StatusTeamUtil.applyStatus(server.getScoreboard(), player, settings, StatusTextUtil.resolveStatusForPlayer(settings, player), StatusTextUtil.resolveColorForPlayer(settings, player), PermissionUtil.hasAdminPermission(player)); }
-    private static void addHistory(PlayerSettings settings, String status) { if (settings == null || status == null || status.isBlank()) return; if (settings.statusHistory == null) settings.statusHistory = new java.util.ArrayList<>(); settings.statusHistory.remove(status); settings.statusHistory.add(status); int max = StatusMod.getConfig() == null ? 5 : StatusMod.getConfig().statusHistorySize; while (settings.statusHistory.size() > max && max > 0) settings.statusHistory.remove(0); if (max <= 0) settings.statusHistory.clear(); }
+    private static void applyStatusUpdate(CommandSourceStack src, ServerPlayer player, PlayerSettings settings, StatusUpdate update, boolean perWorld, Long expiresAtMs, boolean keepFont) { if (player == null || settings == null || update == null) return; if (!keepFont && update.font != null && !update.font.isEmpty()) settings.fontStyle = FontMapper.normalizeStyle(update.font); if (perWorld) { String key = com.teufel.statusmod.util.CompatUtil.getWorldKey(player); settings.setWorldOverride(key, update.status, update.color); } else { settings.status = update.status; settings.color = update.color; } if (expiresAtMs != null) settings.statusExpiresAtMs = expiresAtMs; settings.lastStatusChangeAtMs = System.currentTimeMillis(); addHistory(settings, update.status); StatusMod.getStorage().put(player.getUUID().toString(), settings); Deadlines.scheduleStatusExpiry(player.getUUID().toString(), settings.statusExpiresAtMs); var server = src.getServer(); StatusTeamUtil.applyStatus(server.getScoreboard(), player, settings, StatusTextUtil.resolveStatusForPlayer(settings, player), StatusTextUtil.resolveColorForPlayer(settings, player), PermissionUtil.hasAdminPermission(player)); }
+    private static void addHistory(PlayerSettings settings, String status) { if (settings == null || status == null || status.isBlank()) return; if (settings.statusHistory == null) settings.statusHistory = new com.teufel.statusmod.storage.StatusHistory(); settings.statusHistory.setLimit(StatusMod.getConfig() == null ? 5 : StatusMod.getConfig().statusHistorySize); settings.statusHistory.push(status); }
     private static StatusUpdate parseStatusInput(String statusInput, String colorKey, PlayerSettings settings) { if (settings == null) return StatusUpdate.error("Fehler: Keine Einstellungen."); int n = settings.statusWords <= 0 ? 1 : settings.statusWords; String[] tokens = statusInput == null ? new String[0] : statusInput.trim().split("\\s+"); if (tokens.length < n) return StatusUpdate.error("Bitte mindestens " + n + " Wörter für den Status angeben."); StringBuilder sb = new StringBuilder(); for (int i = 0; i < n; i++) { if (i > 0) sb.append(' '); sb.append(tokens[i]); }     String status = sb.toString();
     status = status.replaceAll("(?s)\u00A7.", "");
     status = status.replace("\u00A7", "");
@@ -0,0 +1,98 @@
+package com.teufel.statusmod.lifecycle;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Last known position and view direction of every online player, for AFK detection. Each
+ * player gets a slot for the session; the values live in parallel primitive arrays, so a check
+ * allocates nothing. A player counts as active once they moved at least the threshold from the
+ * reference point or turned their view noticeably; the reference point only moves along then,
+ * so jitter never adds up to activity while slow walking still does. Server thread only.
+ */
+final class ActivityTracker {
+    private static final float ROTATION_THRESHOLD_DEGREES = 10f;
+
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private double[] x = new double[64];
+    private double[] y = new double[64];
+    private double[] z = new double[64];
+    private float[] yaw = new float[64];
+    private float[] pitch = new float[64];
+    private boolean[] known = new boolean[64];
+    private int[] free = new int[64];
+    private int freeCount;
+    private int nextSlot;
+
+    /**
+     * Whether the player moved or turned since the last time this returned true. The first
+     * observation of a session counts as activity.
+     */
+    boolean moved(UUID uuid, double px, double py, double pz, float pyaw, float ppitch, double threshold) {
+        Integer boxed = slots.get(uuid);
+        int slot = boxed == null ? register(uuid) : boxed;
+        if (known[slot]) {
+            double dx = px - x[slot];
+            double dy = py - y[slot];
+            double dz = pz - z[slot];
+            boolean walked = dx * dx + dy * dy + dz * dz >= threshold * threshold;
+            boolean turned = Math.abs(wrapDegrees(pyaw - yaw[slot])) >= ROTATION_THRESHOLD_DEGREES
+                || Math.abs(ppitch - pitch[slot]) >= ROTATION_THRESHOLD_DEGREES;
+            if (!walked && !turned) return false;
+        }
+        x[slot] = px;
+        y[slot] = py;
+        z[slot] = pz;
+        yaw[slot] = pyaw;
+        pitch[slot] = ppitch;
+        known[slot] = true;
+        return true;
+    }
+
+    void release(UUID uuid) {
+        Integer slot = slots.remove(uuid);
+        if (slot == null) return;
+        known[slot] = false;
+        free[freeCount++] = slot;
+    }
+
+    void clear() {
+        slots.clear();
+        Arrays.fill(known, false);
+        freeCount = 0;
+        nextSlot = 0;
+    }
+
+    private int register(UUID uuid) {
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            slot = nextSlot++;
+            if (slot == known.length) grow();
+        }
+        known[slot] = false;
+        slots.put(uuid, slot);
+        return slot;
+    }
+
+    private void grow() {
+        int size = known.length * 2;
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        z = Arrays.copyOf(z, size);
+        yaw = Arrays.copyOf(yaw, size);
+        pitch = Arrays.copyOf(pitch, size);
+        known = Arrays.copyOf(known, size);
+        free = Arrays.copyOf(free, size);
+    }
+
+    private static float wrapDegrees(float degrees) {
+        float d = degrees % 360f;
+        if (d >= 180f) d -= 360f;
+        if (d < -180f) d += 360f;
+        return d;
+    }
+}
@@ -0,0 +1,82 @@
+package com.teufel.statusmod.lifecycle;
+
+import com.teufel.statusmod.StatusMod;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Online players whose status uses an animated color. The set is kept up to date whenever a
+ * status is applied, so nothing has to scan all players to find them; only these players are
+ * redrawn at {@code animationFps}. At most {@code maxAnimatedPlayers} are animated, in the
+ * order they started; the rest are redrawn at the normal reapply interval until a slot frees
+ * up. Server thread only.
+ */
+public final class AnimationScheduler {
+    private static final int TICKS_PER_SECOND = 20;
+
+    private static final Set<UUID> animated = new LinkedHashSet<>();
+    private static final List<UUID> frame = new ArrayList<>();
+    private static long tick;
+
+    private AnimationScheduler() {}
+
+    /**
+     * Called for every applied status with whether its color (or staff badge) is animated.
+     */
+    public static void track(UUID uuid, boolean isAnimated) {
+        if (uuid == null) return;
+        if (isAnimated) animated.add(uuid);
+        else animated.remove(uuid);
+    }
+
+    public static void untrack(UUID uuid) {
+        if (uuid != null) animated.remove(uuid);
+    }
+
+    public static int size() {
+        return animated.size();
+    }
+
+    static void reset() {
+        animated.clear();
+        tick = 0;
+    }
+
+    static void tick(MinecraftServer server) {
+        tick++;
+        if (animated.isEmpty()) return;
+        if (tick % frameIntervalTicks() != 0) return;
+        int budget = StatusMod.config == null ? 50 : StatusMod.config.maxAnimatedPlayers;
+        // Copied first: redrawing can untrack a player whose status changed meanwhile.
+        frame.clear();
+        for (UUID uuid : animated) {
+            if (frame.size() >= budget) break;
+            frame.add(uuid);
+        }
+        for (UUID uuid : frame) {
+            ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            if (player == null) animated.remove(uuid);
+            else StatusLifecycle.redrawAnimated(server, player);
+        }
+    }
+
+    /**
+     * First server tick of the current animation frame. Animated colors are drawn from this,
+     * so every render within one frame looks the same.
+     */
+    public static long frameTick() {
+        int interval = frameIntervalTicks();
+        return tick / interval * interval;
+    }
+
+    private static int frameIntervalTicks() {
+        int fps = StatusMod.config == null ? 4 : StatusMod.config.animationFps;
+        return Math.max(1, TICKS_PER_SECOND / Math.max(1, fps));
+    }
+}
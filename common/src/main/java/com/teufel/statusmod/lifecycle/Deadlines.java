@@ -0,0 +1,174 @@
+package com.teufel.statusmod.lifecycle;
+
+import com.teufel.statusmod.StatusMod;
+import com.teufel.statusmod.storage.MutedPlayers;
+import com.teufel.statusmod.util.Perf;
+import net.minecraft.server.MinecraftServer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Owns every time-based transition: mute expiry, timed-status expiry and auto-AFK. Deadlines
+ * are kept in wall-clock milliseconds by the stores and converted to ticks here. The wheel
+ * moves with the wall clock, one step per 50 ms that actually passed, so a
+ * lagging server fires its deadlines on time (several steps in one server tick) instead of
+ * stretching them with the tick rate. Each deadline is armed once for its full distance; one
+ * that fires before its wall-clock time (the clock was changed) simply re-arms for the rest.
+ * Server thread only.
+ */
+public final class Deadlines {
+    private static final long TICK_MS = 50L;
+
+    private enum Kind { MUTE, STATUS, AFK }
+
+    private static final TimerWheel<Key> WHEEL = new TimerWheel<>(Deadlines::fire);
+    /** Wall-clock due time of every armed deadline. */
+    private static final Map<Key, Long> dueAtMs = new HashMap<>();
+    private static MinecraftServer server;
+    private static boolean mutesLoaded = false;
+    /** Wall-clock tick the wheel has been advanced to; -1 before the first use. */
+    private static long wheelTick = -1L;
+
+    private Deadlines() {}
+
+    public static void scheduleMuteExpiry(String uuid, long untilMs) {
+        if (uuid == null) return;
+        if (untilMs <= 0L) cancel(new Key(Kind.MUTE, uuid));
+        else schedule(new Key(Kind.MUTE, uuid), untilMs);
+    }
+
+    public static void cancelMuteExpiry(String uuid) {
+        if (uuid != null) cancel(new Key(Kind.MUTE, uuid));
+    }
+
+    /**
+     * Schedules the expiry of a timed status; {@code expiresAtMs <= 0} cancels it.
+     */
+    public static void scheduleStatusExpiry(String uuid, long expiresAtMs) {
+        if (uuid == null) return;
+        if (expiresAtMs <= 0L) cancel(new Key(Kind.STATUS, uuid));
+        else schedule(new Key(Kind.STATUS, uuid), expiresAtMs);
+    }
+
+    public static void scheduleAfkCheck(String uuid, long atMs) {
+        if (uuid != null) schedule(new Key(Kind.AFK, uuid), atMs);
+    }
+
+    /**
+     * Drops the per-session deadlines of a player who left. Mutes keep running.
+     */
+    public static void cancelPlayer(String uuid) {
+        if (uuid == null) return;
+        cancel(new Key(Kind.STATUS, uuid));
+        cancel(new Key(Kind.AFK, uuid));
+    }
+
+    public static int pending() {
+        return WHEEL.size();
+    }
+
+    /**
+     * Advances the wheel to the current wall-clock tick and fires what is due. Once
+     * {@code deadlineNanos} has passed, the remaining steps and due deadlines wait for the next
+     * tick.
+     */
+    static void tick(MinecraftServer current, long deadlineNanos) {
+        server = current;
+        if (!mutesLoaded) {
+            mutesLoaded = true;
+            MutedPlayers muted = StatusMod.getMutedPlayers();
+            if (muted != null) {
+                for (Map.Entry<UUID, Long> e : muted.getAllMuted().entrySet()) scheduleMuteExpiry(e.getKey().toString(), e.getValue());
+            }
+        }
+        long target = wallTick();
+        if (wheelTick < 0L) wheelTick = target;
+        boolean first = true;
+        while (wheelTick < target) {
+            if (!first && System.nanoTime() - deadlineNanos > 0) return;
+            first = false;
+            WHEEL.advance(deadlineNanos);
+            wheelTick++;
+        }
+    }
+
+    static void reset() {
+        WHEEL.clear();
+        dueAtMs.clear();
+        wheelTick = -1L;
+        mutesLoaded = false;
+        server = null;
+    }
+
+    private static void schedule(Key key, long atMs) {
+        dueAtMs.put(key, atMs);
+        arm(key, atMs);
+    }
+
+    private static void arm(Key key, long atMs) {
+        if (wheelTick < 0L) wheelTick = wallTick();
+        WHEEL.schedule(key, Math.floorDiv(atMs + TICK_MS - 1, TICK_MS) - wheelTick);
+    }
+
+    private static long wallTick() {
+        return System.currentTimeMillis() / TICK_MS;
+    }
+
+    private static void cancel(Key key) {
+        WHEEL.cancel(key);
+        dueAtMs.remove(key);
+    }
+
+    private static void fire(Key key) {
+        Long due = dueAtMs.get(key);
+        if (due != null && due > System.currentTimeMillis()) {
+            arm(key, due);
+            return;
+        }
+        dueAtMs.remove(key);
+        long t = Perf.start();
+        try {
+            switch (key.kind) {
+                case MUTE -> {
+                    MutedPlayers muted = StatusMod.getMutedPlayers();
+                    if (muted == null) return;
+                    long until = muted.getMutedUntilRaw(key.uuid);
+                    if (until <= 0L) return;
+                    if (!muted.expireIfDue(key.uuid)) schedule(key, until);
+                }
+                case STATUS -> StatusLifecycle.onStatusDeadline(server, key.uuid);
+                case AFK -> StatusLifecycle.onAfkDeadline(server, key.uuid);
+            }
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Error handling " + key.kind + " deadline for " + key.uuid);
+            e.printStackTrace();
+        } finally {
+            Perf.record(key.kind == Kind.AFK ? Perf.Phase.AFK : Perf.Phase.EXPIRY, t);
+        }
+    }
+
+    private static final class Key {
+        final Kind kind;
+        final String uuid;
+
+        Key(Kind kind, String uuid) {
+            this.kind = kind;
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return kind == other.kind && uuid.equals(other.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, uuid);
+        }
+    }
+}
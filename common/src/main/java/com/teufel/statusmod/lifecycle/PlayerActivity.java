@@ -0,0 +1,93 @@
+package com.teufel.statusmod.lifecycle;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Last activity of every online player, kept apart from {@code PlayerSettings} so activity
+ * events never touch the settings cache. Recording activity is a volatile write of the tick
+ * clock plus a volatile read of the AFK flag; only the first activity of an AFK player goes
+ * further and queues the player to leave AFK on the next server tick. Safe from any thread.
+ */
+final class PlayerActivity {
+    private static final class Session {
+        volatile long lastActiveMs;
+        final AtomicBoolean afk = new AtomicBoolean();
+
+        Session(long nowMs) {
+            lastActiveMs = nowMs;
+        }
+    }
+
+    private static final ConcurrentHashMap<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<UUID> waking = new ConcurrentLinkedQueue<>();
+    /** Wall clock as of the current server tick; activity is recorded at tick precision. */
+    private static volatile long clockMs = System.currentTimeMillis();
+
+    private PlayerActivity() {}
+
+    static void advanceClock(long nowMs) {
+        clockMs = nowMs;
+    }
+
+    static void start(UUID uuid, long nowMs) {
+        sessions.put(uuid, new Session(nowMs));
+    }
+
+    static void end(UUID uuid) {
+        sessions.remove(uuid);
+    }
+
+    static void clear() {
+        sessions.clear();
+        waking.clear();
+    }
+
+    /**
+     * Records activity now. Unknown players (not joined yet, or already gone) are ignored.
+     */
+    static void touch(UUID uuid) {
+        Session s = sessions.get(uuid);
+        if (s == null) return;
+        s.lastActiveMs = clockMs;
+        if (s.afk.get() && s.afk.compareAndSet(true, false)) waking.offer(uuid);
+    }
+
+    /**
+     * Last activity in epoch milliseconds, {@code -1} for players without a session.
+     */
+    static long lastActive(UUID uuid) {
+        Session s = sessions.get(uuid);
+        return s == null ? -1L : s.lastActiveMs;
+    }
+
+    /**
+     * Flags the player as AFK unless there was activity after {@code idleSinceMs}. The flag is
+     * set before the timestamp is read again, so activity racing with this call either sees
+     * the flag and queues a wake-up, or is seen here; it is never lost.
+     */
+    static boolean markAfk(UUID uuid, long idleSinceMs) {
+        Session s = sessions.get(uuid);
+        if (s == null) return false;
+        s.afk.set(true);
+        if (s.lastActiveMs <= idleSinceMs) return true;
+        s.afk.compareAndSet(true, false);
+        return false;
+    }
+
+    static boolean isAfk(UUID uuid) {
+        Session s = sessions.get(uuid);
+        return s != null && s.afk.get();
+    }
+
+    /**
+     * Hands every player that became active while AFK to {@code action}. Server thread.
+     */
+    static void drainWaking(Consumer<UUID> action) {
+        UUID uuid;
+        while ((uuid = waking.poll()) != null) action.accept(uuid);
+    }
+}
@@ -2,36 +2,69 @@ package com.teufel.statusmod.lifecycle;
 
 import com.teufel.statusmod.StatusMod;
 import com.teufel.statusmod.storage.PlayerSettings;
-import com.teufel.statusmod.util.ColorMapper;
+import com.teufel.statusmod.util.Perf;
 import com.teufel.statusmod.util.PermissionUtil;
+import com.teufel.statusmod.util.StatusPlaceholders;
 import com.teufel.statusmod.util.StatusTeamUtil;
 import com.teufel.statusmod.util.StatusTextUtil;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public final class StatusLifecycle {
     private static final int DEFAULT_REAPPLY_INTERVAL_TICKS = 100;
     private static final int MIN_REAPPLY_INTERVAL_TICKS = 20;
-    private static final long AFK_CHECK_INTERVAL_MS = 5_000L;
-    private static int tickCounter = 0;
-    private static long lastAfkCheckMs = 0L;
+    private static final long AFK_RECHECK_MS = 5_000L;
+    private static final List<ServerPlayer> cycle = new ArrayList<>();
+    private static int cycleCursor = 0;
+    private static int cycleTicks = 0;
     private static int cachedConfiguredInterval = DEFAULT_REAPPLY_INTERVAL_TICKS;
     private static long lastConfigRefreshMs = 0L;
     private static final long CONFIG_REFRESH_INTERVAL_MS = 60_000L;
-    private static final Map<String, String> lastPlayerPositions = new ConcurrentHashMap<>();
+    private static final ActivityTracker activity = new ActivityTracker();
+    /** Auto-AFK players; their position is sampled every tick so they wake up promptly. */
+    private static final Set<UUID> afkPlayers = new LinkedHashSet<>();
 
     private StatusLifecycle() {}
 
     public static void onPlayerJoin(MinecraftServer server, ServerPlayer player) {
         if (server == null || player == null || StatusMod.storage == null) return;
         String uuid = player.getUUID().toString();
+        StatusMod.storage.pin(uuid);
+        CompletableFuture<PlayerSettings> load = StatusMod.storage.forPlayerAsync(uuid);
+        if (load.isDone() && !load.isCompletedExceptionally()) {
+            restore(server, player, uuid, load.join());
+            return;
+        }
+        load.whenComplete((settings, error) -> server.execute(() -> {
+            if (error != null) {
+                System.err.println("[StatusMod] Error loading settings for player " + player.getScoreboardName());
+                error.printStackTrace();
+                return;
+            }
+            if (server.getPlayerList().getPlayer(player.getUUID()) != player) return;
+            restore(server, player, uuid, settings);
+        }));
+    }
+
+    /**
+     * Second half of the join, on the server thread once the player's settings are in memory.
+     */
+    private static void restore(MinecraftServer server, ServerPlayer player, String uuid, PlayerSettings settings) {
         try {
-            PlayerSettings settings = StatusMod.storage.forPlayer(uuid);
+            boolean wasAfk = settings.autoAfk;
             settings.lastActivityAtMs = System.currentTimeMillis();
             settings.autoAfk = false;
+            if (wasAfk) StatusMod.storage.put(uuid, settings);
+            PlayerActivity.start(player.getUUID(), settings.lastActivityAtMs);
+            Deadlines.scheduleStatusExpiry(uuid, settings.statusExpiresAtMs);
+            Deadlines.scheduleAfkCheck(uuid, settings.lastActivityAtMs + afkTimeoutMs());
             String status = StatusTextUtil.resolveStatusForPlayer(settings, player);
             if (status != null && !status.isEmpty()) {
                 reapplyStatus(server, player, uuid, settings);
@@ -44,70 +77,88 @@ public final class StatusLifecycle {
 
     public static void onPlayerDisconnect(ServerPlayer player) {
         if (player != null) {
-            lastPlayerPositions.remove(player.getUUID().toString());
+            long lastActive = PlayerActivity.lastActive(player.getUUID());
+            PlayerSettings settings = StatusMod.storage == null ? null : StatusMod.storage.peek(player.getUUID().toString());
+            if (settings != null && lastActive > 0L && lastActive != settings.lastActivityAtMs) {
+                settings.lastActivityAtMs = lastActive;
+                StatusMod.storage.put(player.getUUID().toString(), settings);
+            }
+            PlayerActivity.end(player.getUUID());
+            afkPlayers.remove(player.getUUID());
+            activity.release(player.getUUID());
+            StatusTeamUtil.forget(player.getUUID());
+            StatusPlaceholders.forget(player.getUUID());
+            AnimationScheduler.untrack(player.getUUID());
+            Deadlines.cancelPlayer(player.getUUID().toString());
+            if (StatusMod.storage != null) StatusMod.storage.unpin(player.getUUID().toString());
+        }
+    }
+
+    public static void onServerStopping(MinecraftServer server) {
+        Deadlines.reset();
+        StatusTeamUtil.forgetAll();
+        StatusPlaceholders.forgetAll();
+        AnimationScheduler.reset();
+        cycle.clear();
+        activity.clear();
+        afkPlayers.clear();
+        PlayerActivity.clear();
+        cycleCursor = 0;
+        cycleTicks = 0;
+        try {
+            StatusMod.shutdown();
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Error flushing storage on server stop");
+            e.printStackTrace();
         }
     }
 
+    /**
+     * Activity hooks, called by the loaders (and by the movement sampling below). Cheap enough
+     * for every event: see {@link PlayerActivity#touch}.
+     */
     public static void onPlayerMove(ServerPlayer player) {
-        markActive(player);
+        if (player != null) PlayerActivity.touch(player.getUUID());
     }
 
     public static void onPlayerChat(ServerPlayer player) {
-        markActive(player);
+        if (player != null) PlayerActivity.touch(player.getUUID());
     }
 
     public static void onPlayerCommand(ServerPlayer player) {
-        markActive(player);
-    }
-
-    private static MinecraftServer getPlayerServer(ServerPlayer player) {
-        if (player == null) return null;
-        try {
-            java.lang.reflect.Method m = player.getClass().getMethod("getServer");
-            return (MinecraftServer) m.invoke(player);
-        } catch (Exception ignored) {}
-        try {
-            Object level = player.getClass().getMethod("level").invoke(player);
-            if (level != null) {
-                java.lang.reflect.Method m = level.getClass().getMethod("getServer");
-                return (MinecraftServer) m.invoke(level);
-            }
-        } catch (Exception ignored) {}
-        try {
-            Object level = player.getClass().getMethod("getLevel").invoke(player);
-            if (level != null) {
-                java.lang.reflect.Method m = level.getClass().getMethod("getServer");
-                return (MinecraftServer) m.invoke(level);
-            }
-        } catch (Exception ignored) {}
-        return null;
-    }
-
-    private static void markActive(ServerPlayer player) {
-        if (player == null || StatusMod.storage == null) return;
-        try {
-            PlayerSettings ps = StatusMod.storage.forPlayer(player.getUUID().toString());
-            if (ps == null) return;
-            ps.lastActivityAtMs = System.currentTimeMillis();
-            if (ps.autoAfk) {
-                ps.autoAfk = false;
-                ps.status = "";
-                ps.color = "reset";
-                StatusMod.storage.put(player.getUUID().toString(), ps);
-                MinecraftServer server = getPlayerServer(player);
-                if (server != null) {
-                    reapplyStatus(server, player, player.getUUID().toString(), ps);
-                }
-                player.sendSystemMessage(net.minecraft.network.chat.Component.literal("§aDu bist nicht mehr AFK."));
-            }
-        } catch (Exception ignored) {}
+        if (player != null) PlayerActivity.touch(player.getUUID());
     }
 
+    /**
+     * Per-tick work is bounded by {@code tickBudgetNanos}: AFK players that became active
+     * leave AFK first, then due deadlines fire, animated players are redrawn and a slice of
+     * the periodic reapply runs. The reapply
+     * visits every online player once per {@code statusReapplyTicks}, spread evenly over the
+     * interval; whatever does not fit the budget carries over to the next tick.
+     */
     public static void onServerTick(MinecraftServer server) {
         if (server == null || StatusMod.storage == null) return;
-        tickCounter++;
+        long t = Perf.start();
+        try {
+            runTick(server);
+        } finally {
+            Perf.record(Perf.Phase.TICK, t);
+        }
+    }
 
+    private static void runTick(MinecraftServer server) {
+        long deadline = System.nanoTime() + tickBudgetNanos();
         long now = System.currentTimeMillis();
+        PlayerActivity.advanceClock(now);
+        long t = Perf.start();
+        sampleAfkPlayers(server);
+        PlayerActivity.drainWaking(uuid -> leaveAfk(server, uuid));
+        Perf.record(Perf.Phase.AFK, t);
+        Deadlines.tick(server, deadline);
+        t = Perf.start();
+        AnimationScheduler.tick(server);
+        Perf.record(Perf.Phase.ANIMATION, t);
+
         if ((now - lastConfigRefreshMs) > CONFIG_REFRESH_INTERVAL_MS) {
             cachedConfiguredInterval = DEFAULT_REAPPLY_INTERVAL_TICKS;
             try {
@@ -118,77 +169,213 @@ public final class StatusLifecycle {
             lastConfigRefreshMs = now;
         }
 
-        int effectiveInterval = cachedConfiguredInterval;
-        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-            try {
-                PlayerSettings ps = StatusMod.storage.forPlayer(player.getUUID().toString());
-                if (ps != null && ColorMapper.isAnimatedColorInput(ps.color)) {
-                    effectiveInterval = MIN_REAPPLY_INTERVAL_TICKS;
-                    break;
-                }
-            } catch (Exception ignored) {}
+        cycleTicks++;
+        if (cycleCursor >= cycle.size()) {
+            if (cycleTicks < cachedConfiguredInterval) return;
+            cycle.clear();
+            cycle.addAll(server.getPlayerList().getPlayers());
+            cycleCursor = 0;
+            cycleTicks = 0;
         }
+        int ticksLeft = Math.max(1, cachedConfiguredInterval - cycleTicks);
+        int quota = (cycle.size() - cycleCursor + ticksLeft - 1) / ticksLeft;
+        for (int done = 0; done < quota && cycleCursor < cycle.size(); done++) {
+            // At least one player per tick so the cycle always progresses.
+            if (done > 0 && System.nanoTime() - deadline > 0) break;
+            ServerPlayer player = cycle.get(cycleCursor++);
+            if (server.getPlayerList().getPlayer(player.getUUID()) != player) continue;
+            reapplyPeriodic(server, player, now);
+        }
+        if (cycleCursor >= cycle.size()) cycle.clear();
+    }
 
-        if (tickCounter < effectiveInterval) return;
-        tickCounter = 0;
+    private static void reapplyPeriodic(MinecraftServer server, ServerPlayer player, long now) {
+        String uuid = player.getUUID().toString();
+        try {
+            PlayerSettings settings = StatusMod.storage.peek(uuid);
+            // Still being loaded after the join; restore() applies it.
+            if (settings == null) return;
 
-        boolean afkEnabled = StatusMod.config != null && StatusMod.config.enableAutoAfk;
-        int afkTimeoutMs = (StatusMod.config != null ? StatusMod.config.afkTimeoutSeconds : 300) * 1000;
+            if (movedSinceLastLook(player)) onPlayerMove(player);
 
-        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-            String uuid = player.getUUID().toString();
-            try {
-                PlayerSettings settings = StatusMod.storage.forPlayer(uuid);
+            String status = StatusTextUtil.resolveStatusForPlayer(settings, player);
+            if (status == null || status.isEmpty()) return;
+            reapplyStatus(server, player, uuid, settings);
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Error during periodic status reapply for " + player.getScoreboardName());
+            e.printStackTrace();
+        }
+    }
 
-                if (settings.statusExpiresAtMs > 0L && now >= settings.statusExpiresAtMs) {
-                    settings.status = "";
-                    settings.color = "reset";
-                    settings.statusExpiresAtMs = 0L;
-                    StatusMod.storage.put(uuid, settings);
-                }
+    /**
+     * None of the loaders offers a movement event without mixins, so movement is sampled:
+     * every player once per reapply cycle, which is enough to push the AFK deadline back, and
+     * AFK players every tick, so they leave AFK within a tick of moving.
+     */
+    private static boolean movedSinceLastLook(ServerPlayer player) {
+        return activity.moved(player.getUUID(), player.getX(), player.getY(), player.getZ(), player.getYRot(), player.getXRot(), afkMoveThreshold());
+    }
 
-                String posKey = player.getX() + "," + player.getY() + "," + player.getZ();
-                String lastPos = lastPlayerPositions.get(uuid);
-                if (lastPos == null || !lastPos.equals(posKey)) {
-                    settings.lastActivityAtMs = now;
-                    lastPlayerPositions.put(uuid, posKey);
-                    if (settings.autoAfk) {
-                        settings.autoAfk = false;
-                        settings.status = "";
-                        settings.color = "reset";
-                        StatusMod.storage.put(uuid, settings);
-                        player.sendSystemMessage(net.minecraft.network.chat.Component.literal("§aDu bist nicht mehr AFK."));
-                    }
-                }
+    private static void sampleAfkPlayers(MinecraftServer server) {
+        if (afkPlayers.isEmpty()) return;
+        for (UUID uuid : afkPlayers) {
+            ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            if (player != null && movedSinceLastLook(player)) onPlayerMove(player);
+        }
+    }
 
-                if (afkEnabled && !settings.autoAfk && (now - lastAfkCheckMs) >= AFK_CHECK_INTERVAL_MS) {
-                    if (settings.status.isEmpty() && (now - settings.lastActivityAtMs) >= afkTimeoutMs) {
-                        settings.autoAfk = true;
-                        settings.status = "AFK";
-                        settings.color = "yellow";
-                        settings.lastStatusChangeAtMs = now;
-                        StatusMod.storage.put(uuid, settings);
-                        player.sendSystemMessage(net.minecraft.network.chat.Component.literal("§eDu bist nun AFK (inaktiv seit " + ((now - settings.lastActivityAtMs) / 1000L) + "s)."));
-                    }
-                }
+    /**
+     * The player was active while auto-AFK. Also re-arms the AFK deadline, which does not run
+     * while a player is AFK.
+     */
+    private static void leaveAfk(MinecraftServer server, UUID id) {
+        afkPlayers.remove(id);
+        ServerPlayer player = server.getPlayerList().getPlayer(id);
+        if (player == null || StatusMod.storage == null) return;
+        String uuid = id.toString();
+        long lastActive = PlayerActivity.lastActive(id);
+        Deadlines.scheduleAfkCheck(uuid, lastActive + afkTimeoutMs());
+        try {
+            PlayerSettings settings = StatusMod.storage.peek(uuid);
+            if (settings == null || !settings.autoAfk) return;
+            Perf.count(Perf.Counter.AFK_WAKEUPS);
+            settings.autoAfk = false;
+            settings.status = "";
+            settings.color = "reset";
+            settings.lastActivityAtMs = lastActive;
+            StatusMod.storage.put(uuid, settings);
+            reapplyStatus(server, player, uuid, settings);
+            player.sendSystemMessage(net.minecraft.network.chat.Component.literal("§aDu bist nicht mehr AFK."));
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Error leaving AFK for " + player.getScoreboardName());
+            e.printStackTrace();
+        }
+    }
 
-                String status = StatusTextUtil.resolveStatusForPlayer(settings, player);
-                if (status == null || status.isEmpty()) continue;
-                reapplyStatus(server, player, uuid, settings);
-            } catch (Exception e) {
-                System.err.println("[StatusMod] Error during periodic status reapply for " + player.getScoreboardName());
-                e.printStackTrace();
-            }
+    private static double afkMoveThreshold() {
+        return StatusMod.config != null ? StatusMod.config.afkMoveThreshold : 0.5;
+    }
+
+    private static long tickBudgetNanos() {
+        return StatusMod.config != null ? StatusMod.config.tickBudgetNanos : 1_000_000L;
+    }
+
+    private static long afkTimeoutMs() {
+        return (StatusMod.config != null ? StatusMod.config.afkTimeoutSeconds : 300) * 1000L;
+    }
+
+    /**
+     * Timed status ran out. Offline players are not cached here; their deadline is
+     * re-armed on join.
+     */
+    static void onStatusDeadline(MinecraftServer server, String uuid) {
+        if (StatusMod.storage == null) return;
+        PlayerSettings settings = StatusMod.storage.peek(uuid);
+        if (settings == null || settings.statusExpiresAtMs <= 0L) return;
+        if (System.currentTimeMillis() < settings.statusExpiresAtMs) {
+            Deadlines.scheduleStatusExpiry(uuid, settings.statusExpiresAtMs);
+            return;
+        }
+        settings.status = "";
+        settings.color = "reset";
+        settings.statusExpiresAtMs = 0L;
+        StatusMod.storage.put(uuid, settings);
+        ServerPlayer player = onlinePlayer(server, uuid);
+        if (player != null) reapplyStatus(server, player, uuid, settings);
+    }
+
+    /**
+     * One deadline per online player: fires when the player would have been idle for the
+     * timeout and re-arms itself from the last activity if they were active in between. The
+     * player's position is sampled once more first, since the reapply cycle may not have
+     * looked at them since they last moved.
+     */
+    static void onAfkDeadline(MinecraftServer server, String uuid) {
+        ServerPlayer player = onlinePlayer(server, uuid);
+        if (player == null || StatusMod.storage == null) return;
+        PlayerSettings settings = StatusMod.storage.peek(uuid);
+        if (settings == null || settings.autoAfk) return;
+        long now = System.currentTimeMillis();
+        boolean afkEnabled = StatusMod.config != null && StatusMod.config.enableAutoAfk;
+        if (movedSinceLastLook(player)) onPlayerMove(player);
+        long idleSince = PlayerActivity.lastActive(player.getUUID());
+        if (idleSince < 0L) return;
+        if (!afkEnabled) {
+            Deadlines.scheduleAfkCheck(uuid, now + afkTimeoutMs());
+            return;
+        }
+        if (now - idleSince < afkTimeoutMs()) {
+            Deadlines.scheduleAfkCheck(uuid, idleSince + afkTimeoutMs());
+            return;
+        }
+        if (!settings.status.isEmpty()) {
+            // A manual status blocks auto-AFK; look again shortly in case it gets cleared.
+            Deadlines.scheduleAfkCheck(uuid, now + AFK_RECHECK_MS);
+            return;
+        }
+        if (!PlayerActivity.markAfk(player.getUUID(), idleSince)) {
+            Deadlines.scheduleAfkCheck(uuid, PlayerActivity.lastActive(player.getUUID()) + afkTimeoutMs());
+            return;
+        }
+        afkPlayers.add(player.getUUID());
+        settings.autoAfk = true;
+        settings.lastActivityAtMs = idleSince;
+        settings.status = "AFK";
+        settings.color = "yellow";
+        settings.lastStatusChangeAtMs = now;
+        StatusMod.storage.put(uuid, settings);
+        reapplyStatus(server, player, uuid, settings);
+        player.sendSystemMessage(net.minecraft.network.chat.Component.literal("§eDu bist nun AFK (inaktiv seit " + ((now - idleSince) / 1000L) + "s)."));
+    }
+
+    private static ServerPlayer onlinePlayer(MinecraftServer server, String uuid) {
+        if (server == null) return null;
+        try {
+            return server.getPlayerList().getPlayer(java.util.UUID.fromString(uuid));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes every online player's team again, even where nothing changed. Returns the number
+     * of players.
+     */
+    public static int resyncAll(MinecraftServer server) {
+        if (server == null || StatusMod.storage == null) return 0;
+        StatusTeamUtil.forgetAll();
+        int count = 0;
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            String uuid = player.getUUID().toString();
+            PlayerSettings settings = StatusMod.storage.peek(uuid);
+            if (settings == null) continue;
+            reapplyStatus(server, player, uuid, settings, true);
+            count++;
         }
-        lastAfkCheckMs = now;
+        return count;
+    }
+
+    static void redrawAnimated(MinecraftServer server, ServerPlayer player) {
+        String uuid = player.getUUID().toString();
+        PlayerSettings settings = StatusMod.storage == null ? null : StatusMod.storage.peek(uuid);
+        if (settings != null) reapplyStatus(server, player, uuid, settings);
     }
 
     private static void reapplyStatus(MinecraftServer server, ServerPlayer player, String uuid, PlayerSettings settings) {
+        reapplyStatus(server, player, uuid, settings, false);
+    }
+
+    private static void reapplyStatus(MinecraftServer server, ServerPlayer player, String uuid, PlayerSettings settings, boolean force) {
         try {
             var scoreboard = server.getScoreboard();
+            long t = Perf.start();
             String status = StatusTextUtil.resolveStatusForPlayer(settings, player);
             String color = StatusTextUtil.resolveColorForPlayer(settings, player);
-            StatusTeamUtil.applyStatus(scoreboard, player, settings, status, color, PermissionUtil.hasAdminPermission(player));
+            boolean admin = PermissionUtil.hasAdminPermission(player);
+            Perf.record(Perf.Phase.RESOLVE, t);
+            t = Perf.start();
+            StatusTeamUtil.applyStatus(scoreboard, player, settings, status, color, admin, force);
+            Perf.record(Perf.Phase.APPLY, t);
         } catch (Exception e) {
             System.err.println("[StatusMod] Error reapplying status for player " + player.getScoreboardName());
             e.printStackTrace();
@@ -0,0 +1,154 @@
+package com.teufel.statusmod.lifecycle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel over server ticks. Four levels of 64 slots cover 64^4 ticks
+ * (about 9.7 days at 20 TPS); later deadlines wait in an overflow list that is re-sorted
+ * whenever the top level wraps. Scheduling, cancelling and firing are O(1) amortized: a timer
+ * is moved down at most once per level before it fires.
+ * <p>
+ * Each key has at most one pending deadline; scheduling a key again replaces it. Not thread
+ * safe, use from the server thread only.
+ */
+final class TimerWheel<K> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final List<List<Timer<K>>> wheel = new ArrayList<>(LEVELS * SLOTS);
+    private final List<Timer<K>> overflow = new ArrayList<>();
+    private final List<Timer<K>> due = new ArrayList<>();
+    private final Map<K, Timer<K>> byKey = new HashMap<>();
+    private final Consumer<K> onFire;
+    private long now;
+
+    TimerWheel(Consumer<K> onFire) {
+        this.onFire = onFire;
+        for (int i = 0; i < LEVELS * SLOTS; i++) wheel.add(new ArrayList<>(0));
+    }
+
+    long currentTick() {
+        return now;
+    }
+
+    int size() {
+        return byKey.size();
+    }
+
+    /**
+     * Schedules {@code key} to fire {@code delayTicks} from now (at the next advance if &lt;= 0).
+     */
+    void schedule(K key, long delayTicks) {
+        cancel(key);
+        Timer<K> t = new Timer<>(key, now + Math.max(0L, delayTicks));
+        byKey.put(key, t);
+        place(t);
+    }
+
+    boolean cancel(K key) {
+        Timer<K> t = byKey.remove(key);
+        if (t == null) return false;
+        // Left in its slot and skipped when reached; cheaper than searching the slot.
+        t.cancelled = true;
+        return true;
+    }
+
+    boolean isScheduled(K key) {
+        return byKey.containsKey(key);
+    }
+
+    void clear() {
+        for (List<Timer<K>> slot : wheel) slot.clear();
+        overflow.clear();
+        due.clear();
+        byKey.clear();
+    }
+
+    /**
+     * Moves time forward by one tick and fires everything due. Handlers may schedule again,
+     * including the key that is firing; such deadlines are due at the earliest next tick.
+     */
+    void advance() {
+        advance(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #advance()}, but stops firing once {@code System.nanoTime()} passes
+     * {@code deadlineNanos}; what is left stays due and fires first on the next tick. At least
+     * one timer fires per call.
+     */
+    void advance(long deadlineNanos) {
+        now++;
+        if ((now & MASK) == 0) cascade(1);
+        List<Timer<K>> slot = wheel.get((int) (now & MASK));
+        if (due.isEmpty() && slot.isEmpty()) return;
+        List<Timer<K>> firing = new ArrayList<>(due.size() + slot.size());
+        firing.addAll(due);
+        firing.addAll(slot);
+        due.clear();
+        slot.clear();
+        boolean first = true;
+        for (int i = 0; i < firing.size(); i++) {
+            Timer<K> t = firing.get(i);
+            if (t.cancelled) continue;
+            if (!first && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+                // Ahead of anything handlers scheduled this tick, keeping deadline order.
+                due.addAll(0, firing.subList(i, firing.size()));
+                return;
+            }
+            first = false;
+            byKey.remove(t.key);
+            t.cancelled = true;
+            onFire.accept(t.key);
+        }
+    }
+
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            List<Timer<K>> far = new ArrayList<>(overflow);
+            overflow.clear();
+            for (Timer<K> t : far) if (!t.cancelled) place(t);
+            return;
+        }
+        int index = (int) ((now >>> (BITS * level)) & MASK);
+        if (index == 0) cascade(level + 1);
+        List<Timer<K>> slot = wheel.get(level * SLOTS + index);
+        if (slot.isEmpty()) return;
+        List<Timer<K>> moving = new ArrayList<>(slot);
+        slot.clear();
+        for (Timer<K> t : moving) if (!t.cancelled) place(t);
+    }
+
+    private void place(Timer<K> t) {
+        long delta = t.dueTick - now;
+        if (delta <= 0) {
+            due.add(t);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (BITS * (level + 1)))) {
+                int index = (int) ((t.dueTick >>> (BITS * level)) & MASK);
+                wheel.get(level * SLOTS + index).add(t);
+                return;
+            }
+        }
+        overflow.add(t);
+    }
+
+    private static final class Timer<K> {
+        final K key;
+        final long dueTick;
+        boolean cancelled;
+
+        Timer(K key, long dueTick) {
+            this.key = key;
+            this.dueTick = dueTick;
+        }
+    }
+}
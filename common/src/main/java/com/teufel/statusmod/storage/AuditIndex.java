@@ -0,0 +1,312 @@
+package com.teufel.statusmod.storage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sidecar index of a rotated audit segment ({@code audit-<time>.idx} next to
+ * {@code audit-<time>.log.gz}). The segment is written as a series of independent gzip members
+ * of {@link #BLOCK_LINES} lines each, which is still one valid gzip file; the index records for
+ * every block its byte range, its time range and which actors, targets and actions occur in it.
+ * A query only decompresses the blocks whose summary matches.
+ * <pre>
+ * magic "SMAI", version, dictionary (lower-cased names and actions),
+ * blocks: offset, length, first and last second, actor ids, target ids, action ids
+ * </pre>
+ * A missing or stale index is rebuilt from the segment, re-blocking it if necessary.
+ */
+final class AuditIndex {
+    static final int BLOCK_LINES = 128;
+    private static final int MAGIC = 0x534D4149; // "SMAI"
+    private static final int VERSION = 1;
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    static final class Block {
+        final long offset;
+        final int length;
+        final long firstSecond;
+        final long lastSecond;
+        final int[] actors;
+        final int[] targets;
+        final int[] actions;
+
+        Block(long offset, int length, long firstSecond, long lastSecond, int[] actors, int[] targets, int[] actions) {
+            this.offset = offset;
+            this.length = length;
+            this.firstSecond = firstSecond;
+            this.lastSecond = lastSecond;
+            this.actors = actors;
+            this.targets = targets;
+            this.actions = actions;
+        }
+    }
+
+    final List<String> dict;
+    final List<Block> blocks;
+    private final Map<String, Integer> lookup = new HashMap<>();
+
+    private AuditIndex(List<String> dict, List<Block> blocks) {
+        this.dict = dict;
+        this.blocks = blocks;
+        for (int i = 0; i < dict.size(); i++) lookup.put(dict.get(i), i);
+    }
+
+    /**
+     * Dictionary id of a lower-cased name or action, -1 if it never occurs in the segment.
+     */
+    int id(String value) {
+        Integer id = value == null ? null : lookup.get(value.toLowerCase());
+        return id == null ? -1 : id;
+    }
+
+    static Path indexPath(Path segment) {
+        String name = segment.getFileName().toString();
+        int dot = name.indexOf(".log");
+        return segment.resolveSibling((dot < 0 ? name : name.substring(0, dot)) + ".idx");
+    }
+
+    /**
+     * Compresses a plain rotated segment into {@code <name>.gz} plus its index and deletes the
+     * plain file.
+     */
+    static void compress(Path plain) throws IOException {
+        Path gz = plain.resolveSibling(plain.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(plain)) {
+            write(in, gz);
+        }
+        Files.delete(plain);
+    }
+
+    /**
+     * Loads the index of {@code gz}, rebuilding it if it is missing, unreadable or does not
+     * match the segment.
+     */
+    static AuditIndex load(Path gz) throws IOException {
+        Path idx = indexPath(gz);
+        if (Files.exists(idx)) {
+            try {
+                AuditIndex index = read(Files.readAllBytes(idx));
+                long end = index.blocks.isEmpty() ? 0 : index.blocks.get(index.blocks.size() - 1).offset + index.blocks.get(index.blocks.size() - 1).length;
+                if (end == Files.size(gz)) return index;
+                System.err.println("[StatusMod] Audit index " + idx.getFileName() + " is stale, rebuilding");
+            } catch (IOException e) {
+                System.err.println("[StatusMod] Audit index " + idx.getFileName() + " is unreadable, rebuilding: " + e.getMessage());
+            }
+        }
+        return rebuild(gz);
+    }
+
+    /**
+     * Re-blocks the segment (older segments are a single gzip member) and writes a new index.
+     */
+    static AuditIndex rebuild(Path gz) throws IOException {
+        Path copy = gz.resolveSibling(gz.getFileName() + ".rebuild");
+        Files.copy(gz, copy, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(copy))) {
+            return write(in, gz);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * Reads the lines of one block, oldest first.
+     */
+    static List<String> readBlock(Path gz, Block block) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(block.length);
+        try (FileChannel ch = FileChannel.open(gz, StandardOpenOption.READ)) {
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, block.offset + buf.position()) < 0) throw new EOFException("audit block past end of " + gz.getFileName());
+            }
+        }
+        List<String> lines = new ArrayList<>(BLOCK_LINES);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(buf.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Splits an audit line into actor, action and target; null if it is not in the audit
+     * format.
+     */
+    static String[] fields(String line) {
+        int close = line.indexOf("] ");
+        if (!line.startsWith("[") || close < 0) return null;
+        String[] parts = line.substring(close + 2).split(" \\| ", 4);
+        if (parts.length < 3) return null;
+        return new String[] { parts[0], parts[1], parts[2] };
+    }
+
+    /**
+     * Epoch second of the line's timestamp, or {@link Long#MIN_VALUE} if it has none.
+     */
+    static long epochSecond(String line) {
+        int close = line.indexOf(']');
+        if (!line.startsWith("[") || close < 0) return Long.MIN_VALUE;
+        try {
+            return LocalDateTime.parse(line.substring(1, close), FMT).atZone(ZoneId.systemDefault()).toEpochSecond();
+        } catch (Exception e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static AuditIndex write(InputStream plain, Path gz) throws IOException {
+        Path tmp = gz.resolveSibling(gz.getFileName() + ".tmp");
+        List<String> dict = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        List<Block> blocks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(plain, StandardCharsets.UTF_8));
+             OutputStream out = Files.newOutputStream(tmp)) {
+            List<String> pending = new ArrayList<>(BLOCK_LINES);
+            long offset = 0;
+            String line;
+            while (true) {
+                line = reader.readLine();
+                if (line != null && !line.isEmpty()) pending.add(line);
+                if (pending.size() == BLOCK_LINES || (line == null && !pending.isEmpty())) {
+                    Block block = encodeBlock(pending, offset, out, dict, ids);
+                    blocks.add(block);
+                    offset += block.length;
+                    pending.clear();
+                }
+                if (line == null) break;
+            }
+        }
+        Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING);
+        AuditIndex index = new AuditIndex(dict, blocks);
+        StorageEngine.writeAtomic(indexPath(gz), index.toBytes());
+        return index;
+    }
+
+    private static Block encodeBlock(List<String> lines, long offset, OutputStream out, List<String> dict, Map<String, Integer> ids) throws IOException {
+        Set<Integer> actors = new LinkedHashSet<>();
+        Set<Integer> targets = new LinkedHashSet<>();
+        Set<Integer> actions = new LinkedHashSet<>();
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        ByteArrayOutputStream member = new ByteArrayOutputStream(4096);
+        try (OutputStream gzip = new GZIPOutputStream(member)) {
+            for (String line : lines) {
+                gzip.write(line.getBytes(StandardCharsets.UTF_8));
+                gzip.write('\n');
+                long second = epochSecond(line);
+                if (second != Long.MIN_VALUE) {
+                    first = Math.min(first, second);
+                    last = Math.max(last, second);
+                }
+                String[] f = fields(line);
+                if (f == null) continue;
+                actors.add(intern(f[0], dict, ids));
+                actions.add(intern(f[1], dict, ids));
+                targets.add(intern(f[2], dict, ids));
+            }
+        }
+        member.writeTo(out);
+        if (first == Long.MAX_VALUE) first = last = Long.MIN_VALUE;
+        return new Block(offset, member.size(), first, last, toArray(actors), toArray(targets), toArray(actions));
+    }
+
+    private static int intern(String value, List<String> dict, Map<String, Integer> ids) {
+        String key = value.toLowerCase();
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = dict.size();
+            dict.add(key);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    private static int[] toArray(Set<Integer> set) {
+        int[] out = new int[set.size()];
+        int i = 0;
+        for (int v : set) out[i++] = v;
+        return out;
+    }
+
+    private byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + blocks.size() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dict.size());
+            for (String s : dict) out.writeUTF(s);
+            out.writeInt(blocks.size());
+            for (Block b : blocks) {
+                out.writeLong(b.offset);
+                out.writeInt(b.length);
+                out.writeLong(b.firstSecond);
+                out.writeLong(b.lastSecond);
+                writeIds(out, b.actors);
+                writeIds(out, b.targets);
+                writeIds(out, b.actions);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static AuditIndex read(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) throw new IOException("not an audit index");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("unsupported audit index version " + version);
+            int dictSize = in.readInt();
+            if (dictSize < 0) throw new IOException("invalid dictionary size");
+            List<String> dict = new ArrayList<>(Math.min(dictSize, 4096));
+            for (int i = 0; i < dictSize; i++) dict.add(in.readUTF());
+            int count = in.readInt();
+            if (count < 0) throw new IOException("invalid block count");
+            List<Block> blocks = new ArrayList<>(Math.min(count, 4096));
+            for (int i = 0; i < count; i++) {
+                blocks.add(new Block(in.readLong(), in.readInt(), in.readLong(), in.readLong(), readIds(in, dictSize), readIds(in, dictSize), readIds(in, dictSize)));
+            }
+            return new AuditIndex(dict, blocks);
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) out.writeInt(id);
+    }
+
+    private static int[] readIds(DataInputStream in, int dictSize) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > dictSize) throw new IOException("invalid id count");
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = in.readInt();
+            if (ids[i] < 0 || ids[i] >= dictSize) throw new IOException("id out of range");
+        }
+        return ids;
+    }
+}
@@ -1,34 +1,158 @@
 package com.teufel.statusmod.storage;
 
-import java.io.BufferedWriter;
+import com.teufel.statusmod.util.Perf;
+
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Asynchronous audit log. Callers only put an entry into a bounded lock-free ring; one daemon
+ * thread ({@code StatusMod-Audit}) formats entries in batches and appends them to
+ * {@code audit.log} through a single open channel, forcing it to disk every
+ * {@code auditFlushIntervalMs}. When the ring is full, {@code auditOverflow} decides between
+ * waiting for space ({@code block}), dropping the oldest entry ({@code drop-oldest}) or the
+ * new one ({@code drop}); every dropped entry is counted.
+ * <p>
+ * The active file is rotated once it would exceed {@code auditMaxSizeKb} or is older than
+ * {@code auditRotateHours}; rotated segments are gzipped with a sidecar {@link AuditIndex} and
+ * the oldest beyond {@code auditMaxSegments} are deleted. {@link AuditReader} pages and
+ * searches through all of them.
+ */
 public class AuditLogger {
     private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static File logFile;
+    private static final DateTimeFormatter SEGMENT_FMT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int BATCH = 256;
+    private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long RETRY_PARK_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BLOCK_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile File logFile;
+    private static volatile AuditRing<Entry> ring;
+    private static volatile Thread consumer;
+    private static volatile CountDownLatch drainLatch;
+    private static volatile boolean consumerParked;
+
+    private static final class Entry {
+        final long timeMs;
+        final String who;
+        final String action;
+        final String target;
+        final String detail;
+
+        Entry(long timeMs, String who, String action, String target, String detail) {
+            this.timeMs = timeMs;
+            this.who = who;
+            this.action = action;
+            this.target = target;
+            this.detail = detail;
+        }
+    }
 
     public static synchronized void init() {
-        File configDir = new File("config/statusmod");
-        configDir.mkdirs();
-        logFile = new File(configDir, "audit.log");
+        if (logFile == null) {
+            File configDir = new File("config/statusmod");
+            configDir.mkdirs();
+            logFile = new File(configDir, "audit.log");
+        }
+        if (ring == null) {
+            ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+            ring = new AuditRing<>(cfg == null ? 4096 : cfg.auditBufferSize);
+        }
+        if (consumer == null || !consumer.isAlive()) {
+            Thread t = new Thread(new Writer(), "StatusMod-Audit");
+            t.setDaemon(true);
+            consumer = t;
+            t.start();
+        }
+    }
+
+    public static void log(String who, String action, String target, String detail) {
+        long t = Perf.start();
+        enqueue(who, action, target, detail);
+        Perf.record(Perf.Phase.AUDIT_LOG, t);
     }
 
-    public static synchronized void log(String who, String action, String target, String detail) {
-        if (logFile == null) init();
+    private static void enqueue(String who, String action, String target, String detail) {
+        AuditRing<Entry> r = ring;
+        if (r == null) {
+            init();
+            r = ring;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), who, action, target, detail);
+        if (!r.offer(entry) && !overflow(r, entry)) {
+            dropped.incrementAndGet();
+        }
+        if (consumerParked && r.size() > r.capacity() / 4) {
+            consumerParked = false;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private static boolean overflow(AuditRing<Entry> r, Entry entry) {
+        ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+        String policy = cfg == null ? "drop-oldest" : cfg.auditOverflow;
+        switch (policy) {
+            case "block" -> {
+                // Bounded so a stuck disk cannot hang the server thread forever.
+                long deadline = System.nanoTime() + MAX_BLOCK_NS;
+                while (System.nanoTime() < deadline) {
+                    LockSupport.unpark(consumer);
+                    LockSupport.parkNanos(100_000L);
+                    if (r.offer(entry)) return true;
+                }
+                return false;
+            }
+            case "drop-oldest" -> {
+                for (int attempt = 0; attempt < 8; attempt++) {
+                    if (r.poll() != null) dropped.incrementAndGet();
+                    if (r.offer(entry)) return true;
+                }
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Number of entries lost to a full buffer since the server started.
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits until every entry logged so far is written and forced to disk. Called on server
+     * stop.
+     */
+    public static void drain() {
+        Thread t = consumer;
+        if (t == null || !t.isAlive()) return;
+        CountDownLatch latch = new CountDownLatch(1);
+        drainLatch = latch;
+        LockSupport.unpark(t);
         try {
-            String line = String.format("[%s] %s | %s | %s | %s%n",
-                LocalDateTime.now().format(FMT),
-                safe(who), safe(action), safe(target), safe(detail));
-            Path p = logFile.toPath();
-            Files.writeString(p, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            System.err.println("[StatusMod] Failed to write audit log: " + e.getMessage());
+            if (!latch.await(10, TimeUnit.SECONDS)) System.err.println("[StatusMod] Audit log drain did not complete");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -56,8 +180,207 @@ public class AuditLogger {
         log(who, "UNMUTE", target, "");
     }
 
-    private static String safe(String s) {
-        if (s == null) return "";
-        return s.replace("|", "/").replace("\n", " ").replace("\r", " ").replace("\t", " ").replaceAll("\\p{Cntrl}", "?");
+    /**
+     * Appends {@code s} so it cannot break the line format: '|' becomes '/', line breaks and
+     * tabs become spaces, other control characters '?'.
+     */
+    private static void appendSafe(StringBuilder sb, String s) {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '|') sb.append('/');
+            else if (c == '\n' || c == '\r' || c == '\t') sb.append(' ');
+            else if (Character.isISOControl(c)) sb.append('?');
+            else sb.append(c);
+        }
+    }
+
+    /**
+     * The consumer. Owns the channel; nothing else touches the file while it runs.
+     */
+    private static final class Writer implements Runnable {
+        private final StringBuilder sb = new StringBuilder(BATCH * 96);
+        private FileChannel channel;
+        private ByteBuffer pending;
+        private long lastSecond = Long.MIN_VALUE;
+        private String lastStamp = "";
+        private long lastForceMs = System.currentTimeMillis();
+        private boolean unforced;
+        private long reportedDrops;
+        private long segmentSize;
+        private long segmentStartMs;
+        private boolean leftoversChecked;
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    if (pending == null) pending = nextBatch();
+                    if (pending != null) {
+                        write(pending);
+                        pending = null;
+                        continue;
+                    }
+                    CountDownLatch latch = drainLatch;
+                    if (latch != null) {
+                        drainLatch = null;
+                        force();
+                        latch.countDown();
+                        continue;
+                    }
+                    if (unforced && System.currentTimeMillis() - lastForceMs >= flushIntervalMs()) force();
+                    reportDrops();
+                    consumerParked = true;
+                    LockSupport.parkNanos(IDLE_PARK_NS);
+                    consumerParked = false;
+                } catch (IOException e) {
+                    System.err.println("[StatusMod] Failed to write audit log: " + e.getMessage());
+                    closeQuietly();
+                    LockSupport.parkNanos(RETRY_PARK_NS);
+                } catch (Throwable t) {
+                    System.err.println("[StatusMod] Audit log writer error:");
+                    t.printStackTrace();
+                    pending = null;
+                    LockSupport.parkNanos(RETRY_PARK_NS);
+                }
+            }
+        }
+
+        private ByteBuffer nextBatch() {
+            AuditRing<Entry> r = ring;
+            if (r == null) return null;
+            sb.setLength(0);
+            int n = 0;
+            Entry e;
+            while (n < BATCH && (e = r.poll()) != null) {
+                sb.append('[').append(stamp(e.timeMs)).append("] ");
+                appendSafe(sb, e.who);
+                sb.append(" | ");
+                appendSafe(sb, e.action);
+                sb.append(" | ");
+                appendSafe(sb, e.target);
+                sb.append(" | ");
+                appendSafe(sb, e.detail);
+                sb.append(System.lineSeparator());
+                n++;
+            }
+            return n == 0 ? null : ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private String stamp(long timeMs) {
+            long second = Math.floorDiv(timeMs, 1000L);
+            if (second != lastSecond) {
+                lastSecond = second;
+                lastStamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMs), ZoneId.systemDefault()).format(FMT);
+            }
+            return lastStamp;
+        }
+
+        private void write(ByteBuffer buf) throws IOException {
+            if (channel == null) open();
+            if (segmentSize > 0 && rotationDue(buf.remaining())) {
+                rotate();
+                open();
+            }
+            while (buf.hasRemaining()) segmentSize += channel.write(buf);
+            unforced = true;
+        }
+
+        private void open() throws IOException {
+            Path path = logFile.toPath();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentSize = channel.size();
+            segmentStartMs = segmentSize == 0 ? System.currentTimeMillis() : firstEntryMs(path);
+            if (!leftoversChecked) {
+                leftoversChecked = true;
+                // Segments left uncompressed by a crash during rotation.
+                for (Path segment : AuditReader.segments()) {
+                    if (segment.getFileName().toString().endsWith(".log")) compress(segment);
+                }
+            }
+        }
+
+        /**
+         * When the segment was started, taken from its first entry: file creation times are not
+         * reported on every file system and often fall back to the last modification.
+         */
+        private static long firstEntryMs(Path path) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String first = reader.readLine();
+                long second = first == null ? Long.MIN_VALUE : AuditIndex.epochSecond(first);
+                if (second != Long.MIN_VALUE) return second * 1000L;
+            } catch (IOException ignored) {}
+            return System.currentTimeMillis();
+        }
+
+        private boolean rotationDue(int incoming) {
+            ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+            long maxBytes = (cfg == null ? 1024L : cfg.auditMaxSizeKb) * 1024L;
+            int hours = cfg == null ? 24 : cfg.auditRotateHours;
+            if (segmentSize + incoming > maxBytes) return true;
+            return hours > 0 && System.currentTimeMillis() - segmentStartMs >= hours * 3_600_000L;
+        }
+
+        /**
+         * Moves the active file aside as {@code audit-<time>.log}, compresses it and prunes
+         * the oldest segments beyond {@code auditMaxSegments}.
+         */
+        private void rotate() throws IOException {
+            force();
+            closeQuietly();
+            Path active = logFile.toPath();
+            Path segment = active.resolveSibling(AuditReader.SEGMENT_PREFIX + LocalDateTime.now().format(SEGMENT_FMT) + ".log");
+            Files.move(active, segment);
+            compress(segment);
+            ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+            int keep = cfg == null ? 10 : cfg.auditMaxSegments;
+            List<Path> segments = AuditReader.segments();
+            for (int i = keep; i < segments.size(); i++) {
+                try {
+                    Files.deleteIfExists(segments.get(i));
+                    Files.deleteIfExists(AuditIndex.indexPath(segments.get(i)));
+                } catch (IOException e) {
+                    System.err.println("[StatusMod] Failed to delete old audit segment " + segments.get(i).getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Replaces {@code plain} by {@code plain.gz} and its index. On failure the plain
+         * segment is kept; it stays readable and is retried on the next start.
+         */
+        private static void compress(Path plain) {
+            try {
+                AuditIndex.compress(plain);
+            } catch (IOException e) {
+                System.err.println("[StatusMod] Failed to compress audit segment " + plain.getFileName() + ": " + e.getMessage());
+            }
+        }
+
+        private void force() throws IOException {
+            if (channel != null && unforced && StorageEngine.fsyncEnabled()) channel.force(false);
+            unforced = false;
+            lastForceMs = System.currentTimeMillis();
+        }
+
+        private void reportDrops() {
+            long now = dropped.get();
+            if (now != reportedDrops) {
+                System.err.println("[StatusMod] Audit buffer full, " + (now - reportedDrops) + " entries dropped");
+                reportedDrops = now;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException ignored) {}
+            channel = null;
+        }
+
+        private static long flushIntervalMs() {
+            ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+            return cfg == null ? 1000L : cfg.auditFlushIntervalMs;
+        }
     }
 }
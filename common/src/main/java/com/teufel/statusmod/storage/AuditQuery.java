@@ -0,0 +1,92 @@
+package com.teufel.statusmod.storage;
+
+import java.util.Locale;
+
+/**
+ * Filter for {@code /status admin audit query}: {@code actor:<name> target:<name>
+ * action:<action> since:<duration>}, all optional. Names and actions match case-insensitively;
+ * durations are a number with {@code s}, {@code m}, {@code h}, {@code d} or {@code w}.
+ */
+public final class AuditQuery {
+    final String actor;
+    final String target;
+    final String action;
+    /** Oldest epoch second to include, {@link Long#MIN_VALUE} for no limit. */
+    final long sinceSecond;
+
+    private AuditQuery(String actor, String target, String action, long sinceSecond) {
+        this.actor = actor;
+        this.target = target;
+        this.action = action;
+        this.sinceSecond = sinceSecond;
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message for the player if the input is invalid
+     */
+    public static AuditQuery parse(String input, long nowMs) {
+        String actor = null;
+        String target = null;
+        String action = null;
+        long since = Long.MIN_VALUE;
+        for (String token : (input == null ? "" : input.trim()).split("\\s+")) {
+            if (token.isEmpty()) continue;
+            int colon = token.indexOf(':');
+            if (colon <= 0 || colon == token.length() - 1) throw new IllegalArgumentException("Ungültiger Filter: " + token + " (Format: name:wert)");
+            String key = token.substring(0, colon).toLowerCase(Locale.ROOT);
+            String value = token.substring(colon + 1);
+            switch (key) {
+                case "actor" -> actor = value;
+                case "target" -> target = value;
+                case "action" -> action = value.toUpperCase(Locale.ROOT);
+                case "since" -> since = (nowMs - parseDuration(value)) / 1000L;
+                default -> throw new IllegalArgumentException("Unbekannter Filter: " + key + " (erlaubt: actor, target, action, since)");
+            }
+        }
+        return new AuditQuery(actor, target, action, since);
+    }
+
+    private static long parseDuration(String value) {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        long factor = switch (unit) {
+            case 's' -> 1_000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            case 'w' -> 604_800_000L;
+            default -> -1L;
+        };
+        try {
+            long amount = factor < 0 ? -1 : Long.parseLong(value.substring(0, value.length() - 1));
+            if (amount <= 0 || amount > 100_000) throw new NumberFormatException();
+            return amount * factor;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültige Dauer: " + value + " (z. B. 30m, 12h, 7d)");
+        }
+    }
+
+    boolean matches(String line) {
+        String[] f = AuditIndex.fields(line);
+        if (f == null) return false;
+        if (actor != null && !actor.equalsIgnoreCase(f[0])) return false;
+        if (action != null && !action.equalsIgnoreCase(f[1])) return false;
+        if (target != null && !target.equalsIgnoreCase(f[2])) return false;
+        return sinceSecond == Long.MIN_VALUE || AuditIndex.epochSecond(line) >= sinceSecond;
+    }
+
+    /**
+     * Whether an indexed block can contain a match, judged from its summary alone.
+     */
+    boolean mayMatch(AuditIndex index, AuditIndex.Block block) {
+        if (sinceSecond != Long.MIN_VALUE && block.lastSecond != Long.MIN_VALUE && block.lastSecond < sinceSecond) return false;
+        return contains(block.actors, index, actor) && contains(block.targets, index, target) && contains(block.actions, index, action);
+    }
+
+    private static boolean contains(int[] ids, AuditIndex index, String value) {
+        if (value == null) return true;
+        int id = index.id(value);
+        if (id < 0) return false;
+        for (int v : ids) if (v == id) return true;
+        return false;
+    }
+}
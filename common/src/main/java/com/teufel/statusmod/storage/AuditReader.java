@@ -0,0 +1,290 @@
+package com.teufel.statusmod.storage;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the audit log newest first, one page at a time. The active {@code audit.log} is read
+ * backwards in fixed-size chunks, so a page costs the size of the page rather than the size of
+ * the file. Rotated segments ({@code audit-<time>.log.gz}) are only opened once paging reaches
+ * them; they are bounded by {@code auditMaxSizeKb} and read whole when paging. Searches use
+ * the segments' {@link AuditIndex} instead.
+ */
+public final class AuditReader {
+    static final Path DIR = Paths.get("config/statusmod");
+    static final Path ACTIVE = DIR.resolve("audit.log");
+    static final String SEGMENT_PREFIX = "audit-";
+    private static final int CHUNK = 8192;
+
+    private AuditReader() {}
+
+    public static final class Page {
+        public final int number;
+        /** Oldest first, like the file. */
+        public final List<String> lines;
+        public final boolean hasMore;
+
+        Page(int number, List<String> lines, boolean hasMore) {
+            this.number = number;
+            this.lines = lines;
+            this.hasMore = hasMore;
+        }
+    }
+
+    /**
+     * Page 1 holds the newest {@code pageSize} entries, page 2 the ones before, and so on
+     * across rotated segments.
+     */
+    public static Page readPage(int page, int pageSize) throws IOException {
+        long skip = (long) Math.max(0, page - 1) * pageSize;
+        List<String> newestFirst = new ArrayList<>(pageSize);
+        boolean hasMore = false;
+        List<Path> sources = new ArrayList<>();
+        sources.add(ACTIVE);
+        sources.addAll(segments());
+        outer:
+        for (Path source : sources) {
+            if (!Files.exists(source)) continue;
+            try (LineSource lines = open(source)) {
+                while (lines.hasNext()) {
+                    String line = lines.next();
+                    if (line.isEmpty()) continue;
+                    if (skip > 0) {
+                        skip--;
+                    } else if (newestFirst.size() < pageSize) {
+                        newestFirst.add(line);
+                    } else {
+                        hasMore = true;
+                        break outer;
+                    }
+                }
+            }
+        }
+        Collections.reverse(newestFirst);
+        return new Page(page, newestFirst, hasMore);
+    }
+
+    /**
+     * The newest {@code limit} entries matching {@code query}, across the active file and all
+     * rotated segments. The active file is scanned from the end; in rotated segments only the
+     * blocks whose index summary matches are read. The scan stops at the first entry older
+     * than {@code since}.
+     */
+    public static Page query(AuditQuery query, int limit) throws IOException {
+        Matches matches = new Matches(query, limit);
+        List<Path> sources = new ArrayList<>();
+        sources.add(ACTIVE);
+        sources.addAll(segments());
+        for (Path source : sources) {
+            if (!Files.exists(source)) continue;
+            if (!source.getFileName().toString().endsWith(".gz")) {
+                try (LineSource lines = open(source)) {
+                    while (lines.hasNext()) {
+                        if (!matches.accept(lines.next())) return matches.page();
+                    }
+                }
+                continue;
+            }
+            AuditIndex index = AuditIndex.load(source);
+            for (int b = index.blocks.size() - 1; b >= 0; b--) {
+                AuditIndex.Block block = index.blocks.get(b);
+                if (query.sinceSecond != Long.MIN_VALUE && block.lastSecond != Long.MIN_VALUE && block.lastSecond < query.sinceSecond) return matches.page();
+                if (!query.mayMatch(index, block)) continue;
+                List<String> lines = AuditIndex.readBlock(source, block);
+                for (int i = lines.size() - 1; i >= 0; i--) {
+                    if (!matches.accept(lines.get(i))) return matches.page();
+                }
+            }
+        }
+        return matches.page();
+    }
+
+    /**
+     * Collects matches newest first; {@link #accept} returns false once the scan can stop.
+     */
+    private static final class Matches {
+        private final AuditQuery query;
+        private final int limit;
+        private final List<String> newestFirst = new ArrayList<>();
+        private boolean hasMore;
+
+        Matches(AuditQuery query, int limit) {
+            this.query = query;
+            this.limit = limit;
+        }
+
+        boolean accept(String line) {
+            if (line.isEmpty()) return true;
+            if (query.sinceSecond != Long.MIN_VALUE) {
+                long second = AuditIndex.epochSecond(line);
+                if (second != Long.MIN_VALUE && second < query.sinceSecond) return false;
+            }
+            if (!query.matches(line)) return true;
+            if (newestFirst.size() == limit) {
+                hasMore = true;
+                return false;
+            }
+            newestFirst.add(line);
+            return true;
+        }
+
+        Page page() {
+            List<String> lines = new ArrayList<>(newestFirst);
+            Collections.reverse(lines);
+            return new Page(1, lines, hasMore);
+        }
+    }
+
+    /**
+     * Rotated segments, newest first. The names embed a sortable timestamp.
+     */
+    static List<Path> segments() throws IOException {
+        if (!Files.isDirectory(DIR)) return new ArrayList<>();
+        List<Path> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(DIR)) {
+            files.filter(AuditReader::isSegment).forEach(out::add);
+        }
+        out.sort(Collections.reverseOrder());
+        return out;
+    }
+
+    static boolean isSegment(Path p) {
+        String name = p.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && (name.endsWith(".log.gz") || name.endsWith(".log"));
+    }
+
+    private static LineSource open(Path source) throws IOException {
+        if (source.equals(ACTIVE)) return new ReverseLines(source);
+        return new SegmentLines(source);
+    }
+
+    private interface LineSource extends Iterator<String>, Closeable {}
+
+    /**
+     * Walks a plain file backwards chunk by chunk. Splitting on '\n' bytes is safe for UTF-8,
+     * which never uses that byte inside a multi-byte character.
+     */
+    private static final class ReverseLines implements LineSource {
+        private final FileChannel channel;
+        private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK);
+        private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        private final List<String> ready = new ArrayList<>();
+        private long position;
+
+        ReverseLines(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            position = channel.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (ready.isEmpty() && (position > 0 || partial.size() > 0)) fill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return !ready.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return ready.remove(ready.size() - 1);
+        }
+
+        /**
+         * Reads the previous chunk; complete lines end up in {@code ready} in file order, so
+         * they are taken from the end.
+         */
+        private void fill() throws IOException {
+            if (position == 0) {
+                ready.add(decode(partial.toByteArray(), 0, partial.size()));
+                partial.reset();
+                return;
+            }
+            int len = (int) Math.min(CHUNK, position);
+            position -= len;
+            chunk.clear().limit(len);
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) < 0) break;
+            }
+            byte[] bytes = chunk.array();
+            byte[] tail = partial.toByteArray();
+            int end = len;
+            for (int i = len - 1; i >= 0; i--) {
+                if (bytes[i] != '\n') continue;
+                // bytes[i+1..end) plus the carried-over tail form one complete line.
+                byte[] line = new byte[end - i - 1 + tail.length];
+                System.arraycopy(bytes, i + 1, line, 0, end - i - 1);
+                System.arraycopy(tail, 0, line, end - i - 1, tail.length);
+                tail = new byte[0];
+                ready.add(0, decode(line, 0, line.length));
+                end = i;
+            }
+            partial.reset();
+            partial.write(bytes, 0, end);
+            partial.write(tail, 0, tail.length);
+        }
+
+        private static String decode(byte[] b, int off, int len) {
+            if (len > 0 && b[off + len - 1] == '\r') len--;
+            return new String(b, off, len, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * A rotated segment, newest line first.
+     */
+    private static final class SegmentLines implements LineSource {
+        private final List<String> lines = new ArrayList<>();
+        private int index;
+
+        SegmentLines(Path path) throws IOException {
+            try (InputStream raw = Files.newInputStream(path);
+                 InputStream in = path.toString().endsWith(".gz") ? new GZIPInputStream(raw) : raw;
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) lines.add(line);
+            }
+            index = lines.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index > 0;
+        }
+
+        @Override
+        public String next() {
+            if (index == 0) throw new NoSuchElementException();
+            return lines.get(--index);
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,90 @@
+package com.teufel.statusmod.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue (Vyukov's array queue). Every slot carries a sequence number that
+ * says whether it is free for the producer at that position or filled for the consumer, so
+ * {@link #offer} and {@link #poll} only contend on one CAS each and never block. Safe for any
+ * number of producers and consumers; the audit log uses many producers and one consumer, plus
+ * producers polling the oldest entry away under the drop-oldest policy.
+ */
+final class AuditRing<T> {
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    AuditRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Approximate under concurrent use.
+     */
+    int size() {
+        long s = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(s, capacity()));
+    }
+
+    /**
+     * Returns false if the queue is full.
+     */
+    boolean offer(T value) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.set(idx, value);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Returns null if the queue is empty.
+     */
+    T poll() {
+        long pos = head.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    T value = items.get(idx);
+                    items.set(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return value;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+}
@@ -5,88 +5,135 @@ import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.Reader;
-import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
-public class BlockedPlayers {
+/**
+ * Blocked players as an immutable snapshot that is replaced on every change. Reads never lock
+ * and never allocate; writers are serialized and publish a new copy.
+ */
+public class BlockedPlayers implements StorageEngine.Store {
     private final File file;
-    private Set<String> blockedUuids = new HashSet<>();
+    private volatile Set<UUID> blocked = Set.of();
     private final Gson gson = new Gson();
+    private boolean dirty;
 
     public BlockedPlayers() {
         File configDir = new File("config/statusmod");
         configDir.mkdirs();
         file = new File(configDir, "blocked_players.json");
         load();
+        StorageEngine.get().register(this);
     }
 
-    public synchronized boolean isBlocked(String uuid) {
-        if (uuid == null || uuid.isBlank()) return false;
-        return blockedUuids.contains(uuid);
+    public boolean isBlocked(UUID uuid) {
+        return uuid != null && blocked.contains(uuid);
     }
 
-    public synchronized void block(String uuid) {
-        if (uuid == null || uuid.isBlank()) return;
-        if (blockedUuids.add(uuid)) save();
+    public boolean isBlocked(String uuid) {
+        return isBlocked(parse(uuid));
     }
 
-    public synchronized void unblock(String uuid) {
-        if (uuid == null || uuid.isBlank()) return;
-        if (blockedUuids.remove(uuid)) save();
+    public synchronized void block(UUID uuid) {
+        if (uuid == null || blocked.contains(uuid)) return;
+        Set<UUID> next = new HashSet<>(blocked);
+        next.add(uuid);
+        blocked = Set.copyOf(next);
+        save();
     }
 
-    public synchronized Set<String> getBlockedPlayers() {
-        return new HashSet<>(blockedUuids);
+    public void block(String uuid) {
+        block(parse(uuid));
+    }
+
+    public synchronized void unblock(UUID uuid) {
+        if (uuid == null || !blocked.contains(uuid)) return;
+        Set<UUID> next = new HashSet<>(blocked);
+        next.remove(uuid);
+        blocked = Set.copyOf(next);
+        save();
+    }
+
+    public void unblock(String uuid) {
+        unblock(parse(uuid));
+    }
+
+    /**
+     * The current snapshot; immutable, so callers may keep it.
+     */
+    public Set<UUID> getBlockedPlayers() {
+        return blocked;
     }
 
     public synchronized void load() {
         try {
             if (!file.exists()) return;
             Type t = new TypeToken<Set<String>>(){}.getType();
+            Set<String> raw;
             try (Reader fr = Files.newBufferedReader(file.toPath())) {
-                blockedUuids = gson.fromJson(fr, t);
+                raw = gson.fromJson(fr, t);
+            }
+            Set<UUID> loaded = new HashSet<>();
+            if (raw != null) {
+                for (String s : raw) {
+                    UUID uuid = parse(s);
+                    if (uuid != null) loaded.add(uuid);
+                    else if (s != null && !s.isBlank()) System.err.println("[StatusMod] Ignoring invalid UUID in blocked players: " + s);
+                }
             }
-            if (blockedUuids == null) blockedUuids = new HashSet<>();
-            blockedUuids.removeIf(uuid -> uuid == null || uuid.isBlank());
+            blocked = Set.copyOf(loaded);
         } catch (Exception e) {
             System.err.println("[StatusMod] Error loading blocked players:");
             e.printStackTrace();
-            safeBackupCorrupted(file.toPath(), "blocked_players.corrupt-" + System.currentTimeMillis() + ".json");
-            blockedUuids = new HashSet<>();
+            StorageEngine.backupCorrupted(file.toPath(), "blocked_players.corrupt-" + System.currentTimeMillis() + ".json");
+            blocked = Set.of();
         }
     }
 
+    /**
+     * Schedules a write on the storage engine; the file is written off the calling thread.
+     */
     public synchronized void save() {
+        dirty = true;
+        StorageEngine.get().markDirty(this);
+    }
+
+    @Override
+    public String name() {
+        return file.getName();
+    }
+
+    @Override
+    public void commit() throws Exception {
+        Set<UUID> snapshot;
+        synchronized (this) {
+            if (!dirty) return;
+            snapshot = blocked;
+            dirty = false;
+        }
+        List<String> out = new ArrayList<>(snapshot.size());
+        for (UUID uuid : snapshot) out.add(uuid.toString());
         try {
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) parent.mkdirs();
-            if (blockedUuids == null) blockedUuids = new HashSet<>();
-            Path target = file.toPath();
-            Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-            try (Writer fw = Files.newBufferedWriter(tmp)) {
-                gson.toJson(blockedUuids, fw);
-            }
-            try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (Exception ignored) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
-            }
+            StorageEngine.writeAtomic(file.toPath(), gson.toJson(out));
         } catch (Exception e) {
-            System.err.println("[StatusMod] Error saving blocked players:");
-            e.printStackTrace();
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
         }
     }
 
-    private void safeBackupCorrupted(Path source, String backupName) {
+    static UUID parse(String uuid) {
+        if (uuid == null || uuid.isBlank()) return null;
         try {
-            if (!Files.exists(source)) return;
-            Path backup = source.resolveSibling(backupName);
-            Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception ignored) {}
+            return UUID.fromString(uuid.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 }
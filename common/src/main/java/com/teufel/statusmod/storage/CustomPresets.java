@@ -5,25 +5,24 @@ import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.Reader;
-import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class CustomPresets {
+public class CustomPresets implements StorageEngine.Store {
     private final File file;
     private Map<String, CustomPreset> presets = new LinkedHashMap<>();
     private final Gson gson = new Gson();
+    private boolean dirty;
 
     public CustomPresets() {
         File configDir = new File("config/statusmod");
         configDir.mkdirs();
         file = new File(configDir, "custom_presets.json");
         load();
+        StorageEngine.get().register(this);
     }
 
     public synchronized boolean add(String name, String status, String color, String creatorUuid) {
@@ -77,38 +76,41 @@ public class CustomPresets {
         } catch (Exception e) {
             System.err.println("[StatusMod] Error loading custom presets:");
             e.printStackTrace();
-            safeBackupCorrupted(file.toPath(), "custom_presets.corrupt-" + System.currentTimeMillis() + ".json");
+            StorageEngine.backupCorrupted(file.toPath(), "custom_presets.corrupt-" + System.currentTimeMillis() + ".json");
             presets = new LinkedHashMap<>();
         }
     }
 
+    /**
+     * Schedules a write on the storage engine; the file is written off the calling thread.
+     */
     public synchronized void save() {
-        try {
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) parent.mkdirs();
-            if (presets == null) presets = new LinkedHashMap<>();
-            Path target = file.toPath();
-            Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-            try (Writer fw = Files.newBufferedWriter(tmp)) {
-                gson.toJson(presets, fw);
-            }
-            try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (Exception ignored) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
-            }
-        } catch (Exception e) {
-            System.err.println("[StatusMod] Error saving custom presets:");
-            e.printStackTrace();
-        }
+        dirty = true;
+        StorageEngine.get().markDirty(this);
     }
 
-    private void safeBackupCorrupted(Path source, String backupName) {
+    @Override
+    public String name() {
+        return file.getName();
+    }
+
+    @Override
+    public void commit() throws Exception {
+        String json;
+        synchronized (this) {
+            if (!dirty) return;
+            if (presets == null) presets = new LinkedHashMap<>();
+            json = gson.toJson(presets);
+            dirty = false;
+        }
         try {
-            if (!Files.exists(source)) return;
-            Path backup = source.resolveSibling(backupName);
-            Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception ignored) {}
+            StorageEngine.writeAtomic(file.toPath(), json);
+        } catch (Exception e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
     }
 
     public static class CustomPreset {
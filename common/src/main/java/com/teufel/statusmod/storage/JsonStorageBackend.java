@@ -0,0 +1,91 @@
+package com.teufel.statusmod.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The default backend: the single-file {@code players.json}. {@link SettingsStorage} keeps
+ * its own in-memory handling of the JSON layouts; this class exposes the same file through
+ * the backend interface so it can be a migration source or target.
+ */
+public class JsonStorageBackend implements StorageBackend {
+    private final Gson gson = new Gson();
+    private File file;
+
+    @Override
+    public String getId() {
+        return StorageBackends.DEFAULT_ID;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public void open(File configDir) {
+        file = new File(configDir, "players.json");
+    }
+
+    @Override
+    public synchronized PlayerSettings load(String uuid) throws Exception {
+        PlayerSettings[] found = new PlayerSettings[1];
+        scan((key, settings) -> {
+            if (uuid.equals(key)) found[0] = settings;
+        });
+        return found[0];
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<String, PlayerSettings> sink) throws Exception {
+        scan(sink);
+    }
+
+    @Override
+    public synchronized void upsert(Map<String, PlayerSettings> entries) throws Exception {
+        Map<String, PlayerSettings> all = new LinkedHashMap<>();
+        scan(all::put);
+        all.putAll(entries);
+        StringWriter out = new StringWriter();
+        try (JsonWriter w = gson.newJsonWriter(out)) {
+            w.beginObject();
+            for (Map.Entry<String, PlayerSettings> e : all.entrySet()) {
+                w.name(e.getKey());
+                gson.toJson(e.getValue(), PlayerSettings.class, w);
+            }
+            w.endObject();
+        }
+        StorageEngine.writeAtomic(file.toPath(), out.toString());
+    }
+
+    @Override
+    public boolean rewritesOnUpsert() {
+        return true;
+    }
+
+    private void scan(BiConsumer<String, PlayerSettings> sink) throws Exception {
+        if (!file.exists() || file.length() == 0L) return;
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file.toPath()))) {
+            if (reader.peek() == JsonToken.NULL) return;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                PlayerSettings settings = gson.fromJson(reader, PlayerSettings.class);
+                if (settings != null) sink.accept(key, settings);
+            }
+            reader.endObject();
+        }
+    }
+
+    @Override
+    public void close() {}
+}
@@ -4,10 +4,8 @@ import com.google.gson.Gson;
 
 import java.io.File;
 import java.io.Reader;
-import java.io.Writer;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
 
 public class ModConfig {
     public int adminOpLevel = 2;
@@ -24,6 +22,30 @@ public class ModConfig {
 
     public boolean enableAutoAfk = true;
     public int afkTimeoutSeconds = 300;
+    public double afkMoveThreshold = 0.5;
+
+    public int animationFps = 4;
+    public int maxAnimatedPlayers = 50;
+    public long tickBudgetNanos = 1_000_000L;
+    public boolean perfStats = false;
+
+    public boolean storageWriteBehind = true;
+    public int storageFlushIntervalMs = 5000;
+    public String storageMode = "snapshot";
+    public int storageJournalCompactKb = 1024;
+    public int storageCacheSize = 2048;
+    public boolean storageFsync = true;
+    public String storageBackend = StorageBackends.DEFAULT_ID;
+    public String storageJdbcUrl = DEFAULT_JDBC_URL;
+
+    public int auditBufferSize = 4096;
+    public String auditOverflow = "drop-oldest";
+    public int auditFlushIntervalMs = 1000;
+    public int auditMaxSizeKb = 1024;
+    public int auditRotateHours = 24;
+    public int auditMaxSegments = 10;
+
+    public static final String DEFAULT_JDBC_URL = "jdbc:sqlite:config/statusmod/players.db";
 
     private static final Gson GSON = new Gson();
     private static final int MIN_REAPPLY_TICKS = 20;
@@ -57,26 +79,27 @@ public class ModConfig {
         }
     }
 
+    /**
+     * Reads the config on the storage I/O thread, for commands that must not block the server.
+     */
+    public static CompletableFuture<ModConfig> loadAsync() {
+        return StorageEngine.get().supply(ModConfig::load);
+    }
+
+    /**
+     * Serializes on the calling thread and writes on the storage I/O thread.
+     */
     public void save() {
-        try {
-            File configDir = new File("config/statusmod");
-            configDir.mkdirs();
-            normalize();
-            File f = new File(configDir, "config.json");
-            Path target = f.toPath();
-            Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-            try (Writer writer = Files.newBufferedWriter(tmp)) {
-                GSON.toJson(this, writer);
-            }
+        normalize();
+        String json = GSON.toJson(this);
+        StorageEngine.get().submit(() -> {
             try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (Exception ignored) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                StorageEngine.writeAtomic(new File("config/statusmod", "config.json").toPath(), json);
+            } catch (Exception e) {
+                System.err.println("[StatusMod] Failed to save config");
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            System.err.println("[StatusMod] Failed to save config");
-            e.printStackTrace();
-        }
+        });
     }
 
     private void normalize() {
@@ -100,5 +123,35 @@ public class ModConfig {
         else staffBadgeColor = staffBadgeColor.trim();
         if (afkTimeoutSeconds < 30) afkTimeoutSeconds = 30;
         if (afkTimeoutSeconds > 3600) afkTimeoutSeconds = 3600;
+        if (!(afkMoveThreshold >= 0.0)) afkMoveThreshold = 0.5;
+        if (afkMoveThreshold > 16.0) afkMoveThreshold = 16.0;
+        if (animationFps < 1) animationFps = 1;
+        if (animationFps > 20) animationFps = 20;
+        if (maxAnimatedPlayers < 0) maxAnimatedPlayers = 0;
+        if (maxAnimatedPlayers > 1000) maxAnimatedPlayers = 1000;
+        if (tickBudgetNanos < 50_000L) tickBudgetNanos = 50_000L;
+        if (tickBudgetNanos > 50_000_000L) tickBudgetNanos = 50_000_000L;
+        if (storageFlushIntervalMs < 250) storageFlushIntervalMs = 250;
+        if (storageFlushIntervalMs > 60_000) storageFlushIntervalMs = 60_000;
+        storageMode = storageMode == null ? "snapshot" : storageMode.trim().toLowerCase();
+        if (!storageMode.equals("snapshot") && !storageMode.equals("journal") && !storageMode.equals("sharded") && !storageMode.equals("binary")) storageMode = "snapshot";
+        if (storageJournalCompactKb < 64) storageJournalCompactKb = 64;
+        if (storageJournalCompactKb > 65_536) storageJournalCompactKb = 65_536;
+        if (storageCacheSize < 64) storageCacheSize = 64;
+        storageBackend = storageBackend == null || storageBackend.isBlank() ? StorageBackends.DEFAULT_ID : storageBackend.trim().toLowerCase();
+        if (storageJdbcUrl == null || storageJdbcUrl.isBlank()) storageJdbcUrl = DEFAULT_JDBC_URL;
+        else storageJdbcUrl = storageJdbcUrl.trim();
+        if (auditBufferSize < 256) auditBufferSize = 256;
+        if (auditBufferSize > 65_536) auditBufferSize = 65_536;
+        auditOverflow = auditOverflow == null ? "drop-oldest" : auditOverflow.trim().toLowerCase();
+        if (!auditOverflow.equals("block") && !auditOverflow.equals("drop-oldest") && !auditOverflow.equals("drop")) auditOverflow = "drop-oldest";
+        if (auditFlushIntervalMs < 100) auditFlushIntervalMs = 100;
+        if (auditFlushIntervalMs > 60_000) auditFlushIntervalMs = 60_000;
+        if (auditMaxSizeKb < 64) auditMaxSizeKb = 64;
+        if (auditMaxSizeKb > 1_048_576) auditMaxSizeKb = 1_048_576;
+        if (auditRotateHours < 0) auditRotateHours = 0;
+        if (auditRotateHours > 720) auditRotateHours = 720;
+        if (auditMaxSegments < 1) auditMaxSegments = 1;
+        if (auditMaxSegments > 1000) auditMaxSegments = 1000;
     }
 }
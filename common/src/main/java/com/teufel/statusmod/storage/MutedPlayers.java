@@ -5,116 +5,172 @@ import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.Reader;
-import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 
-public class MutedPlayers {
+/**
+ * Mutes as an immutable snapshot (UUID to end time in ms) that is replaced on every change.
+ * Reads never lock, never allocate and never write; writers are serialized and publish a new
+ * copy.
+ */
+public class MutedPlayers implements StorageEngine.Store {
     private final File file;
-    private Map<String, Long> mutedUntil = new HashMap<>();
+    private volatile Map<UUID, Long> mutedUntil = Map.of();
     private final Gson gson = new Gson();
+    private boolean dirty;
 
     public MutedPlayers() {
         File configDir = new File("config/statusmod");
         configDir.mkdirs();
         file = new File(configDir, "muted_players.json");
         load();
+        StorageEngine.get().register(this);
     }
 
-    public synchronized boolean isMuted(String uuid) {
-        if (uuid == null || uuid.isBlank()) return false;
+    /**
+     * An expired entry counts as not muted; it is removed (and the file rewritten) by the
+     * expiry deadline, never by a read.
+     */
+    public boolean isMuted(UUID uuid) {
+        return getMutedUntil(uuid) > 0;
+    }
+
+    public boolean isMuted(String uuid) {
+        return isMuted(BlockedPlayers.parse(uuid));
+    }
+
+    public long getMutedUntil(UUID uuid) {
+        long until = getMutedUntilRaw(uuid);
+        return until > System.currentTimeMillis() ? until : 0;
+    }
+
+    public long getMutedUntil(String uuid) {
+        return getMutedUntil(BlockedPlayers.parse(uuid));
+    }
+
+    /**
+     * The stored end of the mute, even if it has already passed; 0 if there is none.
+     */
+    public long getMutedUntilRaw(UUID uuid) {
+        if (uuid == null) return 0;
         Long until = mutedUntil.get(uuid);
-        if (until == null) return false;
-        if (System.currentTimeMillis() >= until) {
-            mutedUntil.remove(uuid);
-            save();
-            return false;
-        }
+        return until == null ? 0 : until;
+    }
+
+    public long getMutedUntilRaw(String uuid) {
+        return getMutedUntilRaw(BlockedPlayers.parse(uuid));
+    }
+
+    /**
+     * Removes the mute if it has run out. Returns false if it is still active.
+     */
+    public synchronized boolean expireIfDue(UUID uuid) {
+        Long until = uuid == null ? null : mutedUntil.get(uuid);
+        if (until == null) return true;
+        if (System.currentTimeMillis() < until) return false;
+        publish(uuid, null);
         return true;
     }
 
-    public synchronized long getMutedUntil(String uuid) {
-        if (uuid == null || uuid.isBlank()) return 0;
-        Long until = mutedUntil.get(uuid);
-        if (until == null) return 0;
-        if (System.currentTimeMillis() >= until) {
-            mutedUntil.remove(uuid);
-            save();
-            return 0;
-        }
-        return until;
+    public boolean expireIfDue(String uuid) {
+        return expireIfDue(BlockedPlayers.parse(uuid));
     }
 
-    public synchronized void mute(String uuid, int minutes) {
-        if (uuid == null || uuid.isBlank()) return;
-        mutedUntil.put(uuid, System.currentTimeMillis() + (minutes * 60L * 1000L));
-        save();
+    public synchronized void mute(UUID uuid, int minutes) {
+        if (uuid == null) return;
+        publish(uuid, System.currentTimeMillis() + (minutes * 60L * 1000L));
+    }
+
+    public void mute(String uuid, int minutes) {
+        mute(BlockedPlayers.parse(uuid), minutes);
     }
 
-    public synchronized void unmute(String uuid) {
-        if (uuid == null || uuid.isBlank()) return;
-        if (mutedUntil.remove(uuid) != null) save();
+    public synchronized void unmute(UUID uuid) {
+        if (uuid != null && mutedUntil.containsKey(uuid)) publish(uuid, null);
     }
 
-    public synchronized Map<String, Long> getAllMuted() {
-        purgeExpired();
-        return new HashMap<>(mutedUntil);
+    public void unmute(String uuid) {
+        unmute(BlockedPlayers.parse(uuid));
     }
 
-    private void purgeExpired() {
-        long now = System.currentTimeMillis();
-        mutedUntil.entrySet().removeIf(e -> now >= e.getValue());
+    /**
+     * The current snapshot; immutable, so callers may keep it. May still contain mutes that
+     * ran out in the last tick and whose expiry has not been processed yet.
+     */
+    public Map<UUID, Long> getAllMuted() {
+        return mutedUntil;
+    }
+
+    private void publish(UUID uuid, Long until) {
+        Map<UUID, Long> next = new HashMap<>(mutedUntil);
+        if (until == null) next.remove(uuid);
+        else next.put(uuid, until);
+        mutedUntil = Map.copyOf(next);
+        save();
     }
 
     public synchronized void load() {
         try {
             if (!file.exists()) return;
             Type t = new TypeToken<Map<String, Long>>(){}.getType();
+            Map<String, Long> raw;
             try (Reader fr = Files.newBufferedReader(file.toPath())) {
-                mutedUntil = gson.fromJson(fr, t);
+                raw = gson.fromJson(fr, t);
+            }
+            Map<UUID, Long> loaded = new HashMap<>();
+            boolean purged = false;
+            long now = System.currentTimeMillis();
+            if (raw != null) {
+                for (Map.Entry<String, Long> e : raw.entrySet()) {
+                    UUID uuid = BlockedPlayers.parse(e.getKey());
+                    if (uuid == null || e.getValue() == null || now >= e.getValue()) purged = true;
+                    else loaded.put(uuid, e.getValue());
+                }
             }
-            if (mutedUntil == null) mutedUntil = new HashMap<>();
-            mutedUntil.entrySet().removeIf(e -> e.getKey() == null || e.getValue() == null || System.currentTimeMillis() >= e.getValue());
-            save();
+            mutedUntil = Map.copyOf(loaded);
+            if (purged) save();
         } catch (Exception e) {
             System.err.println("[StatusMod] Error loading muted players:");
             e.printStackTrace();
-            safeBackupCorrupted(file.toPath(), "muted_players.corrupt-" + System.currentTimeMillis() + ".json");
-            mutedUntil = new HashMap<>();
+            StorageEngine.backupCorrupted(file.toPath(), "muted_players.corrupt-" + System.currentTimeMillis() + ".json");
+            mutedUntil = Map.of();
         }
     }
 
+    /**
+     * Schedules a write on the storage engine; the file is written off the calling thread.
+     */
     public synchronized void save() {
-        try {
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) parent.mkdirs();
-            purgeExpired();
-            if (mutedUntil == null) mutedUntil = new HashMap<>();
-            Path target = file.toPath();
-            Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-            try (Writer fw = Files.newBufferedWriter(tmp)) {
-                gson.toJson(mutedUntil, fw);
-            }
-            try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (Exception ignored) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
-            }
-        } catch (Exception e) {
-            System.err.println("[StatusMod] Error saving muted players:");
-            e.printStackTrace();
-        }
+        dirty = true;
+        StorageEngine.get().markDirty(this);
+    }
+
+    @Override
+    public String name() {
+        return file.getName();
     }
 
-    private void safeBackupCorrupted(Path source, String backupName) {
+    @Override
+    public void commit() throws Exception {
+        Map<UUID, Long> snapshot;
+        synchronized (this) {
+            if (!dirty) return;
+            snapshot = mutedUntil;
+            dirty = false;
+        }
+        Map<String, Long> out = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Long> e : snapshot.entrySet()) out.put(e.getKey().toString(), e.getValue());
         try {
-            if (!Files.exists(source)) return;
-            Path backup = source.resolveSibling(backupName);
-            Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception ignored) {}
+            StorageEngine.writeAtomic(file.toPath(), gson.toJson(out));
+        } catch (Exception e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
     }
 }
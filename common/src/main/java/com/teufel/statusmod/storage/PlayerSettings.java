@@ -1,11 +1,18 @@
 package com.teufel.statusmod.storage;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Persisted per-player state. Color and font names are canonicalized by the storage so
+ * players share one instance per value; the per-world maps stay null until a player sets a
+ * world-specific status, because almost nobody does.
+ */
 public class PlayerSettings {
+    private static final int MAX_CANONICAL = 4096;
+    private static final ConcurrentHashMap<String, String> CANONICAL = new ConcurrentHashMap<>();
+
     public boolean brackets = false;
     public boolean beforeName = false;
     public String status = "";
@@ -19,7 +26,61 @@ public class PlayerSettings {
     public long lastActivityAtMs = System.currentTimeMillis();
     public boolean autoAfk = false;
 
-    public List<String> statusHistory = new ArrayList<>();
-    public Map<String, String> statusByWorld = new HashMap<>();
-    public Map<String, String> colorByWorld = new HashMap<>();
+    public StatusHistory statusHistory = new StatusHistory();
+    public Map<String, String> statusByWorld;
+    public Map<String, String> colorByWorld;
+
+    public void setWorldOverride(String worldKey, String status, String color) {
+        if (worldKey == null) return;
+        if (statusByWorld == null) statusByWorld = new HashMap<>(2);
+        if (colorByWorld == null) colorByWorld = new HashMap<>(2);
+        statusByWorld.put(worldKey, status);
+        colorByWorld.put(worldKey, canonical(color));
+    }
+
+    public void clearWorldOverride(String worldKey) {
+        if (worldKey == null) return;
+        if (statusByWorld != null) {
+            statusByWorld.remove(worldKey);
+            if (statusByWorld.isEmpty()) statusByWorld = null;
+        }
+        if (colorByWorld != null) {
+            colorByWorld.remove(worldKey);
+            if (colorByWorld.isEmpty()) colorByWorld = null;
+        }
+    }
+
+    /**
+     * A deep copy for the storage to serialize while the original keeps being changed.
+     */
+    PlayerSettings copy() {
+        PlayerSettings c = new PlayerSettings();
+        c.brackets = brackets;
+        c.beforeName = beforeName;
+        c.status = status;
+        c.color = color;
+        c.fontStyle = fontStyle;
+        c.statusWords = statusWords;
+        c.lastStatusChangeAtMs = lastStatusChangeAtMs;
+        c.statusExpiresAtMs = statusExpiresAtMs;
+        c.lastActivityAtMs = lastActivityAtMs;
+        c.autoAfk = autoAfk;
+        c.statusHistory = statusHistory == null ? null : statusHistory.copy();
+        c.statusByWorld = statusByWorld == null ? null : new HashMap<>(statusByWorld);
+        c.colorByWorld = colorByWorld == null ? null : new HashMap<>(colorByWorld);
+        return c;
+    }
+
+    /**
+     * Returns the shared instance for a color or font name. The pool is capped so arbitrary
+     * hex colors cannot grow it without bound; past the cap the value is returned as is.
+     */
+    static String canonical(String value) {
+        if (value == null) return null;
+        String shared = CANONICAL.get(value);
+        if (shared != null) return shared;
+        if (CANONICAL.size() >= MAX_CANONICAL) return value;
+        shared = CANONICAL.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
 }
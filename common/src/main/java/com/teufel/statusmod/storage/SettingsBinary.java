@@ -0,0 +1,338 @@
+package com.teufel.statusmod.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary layout of {@code players.bin}, used by {@link SettingsStorage} with
+ * {@code storageMode: binary}.
+ * <pre>
+ * header   magic "SMPB", version, record count, dictionary (color and font names)
+ * record   payload length, CRC32 of payload, payload
+ * payload  key (UUID as two longs, or a string for non-UUID keys), flags, status,
+ *          dictionary-coded color/font, numbers, history, per-world maps
+ * </pre>
+ * Counts, lengths and dictionary indices are varints shifted by one so that 0 encodes null;
+ * every field of {@link PlayerSettings} round-trips exactly, including nulls.
+ */
+final class SettingsBinary {
+    private static final int MAGIC = 0x534D5042; // "SMPB"
+    private static final int VERSION = 1;
+    private static final int KEY_UUID = 0;
+    private static final int KEY_STRING = 1;
+    private static final int FLAG_BRACKETS = 1;
+    private static final int FLAG_BEFORE_NAME = 2;
+    private static final int FLAG_AUTO_AFK = 4;
+
+    private SettingsBinary() {}
+
+    /**
+     * Builds a file in one pass: records are encoded into the body while the dictionary grows,
+     * the header is prepended in {@link #toByteArray()}.
+     */
+    static final class Encoder {
+        private final Map<String, Integer> dictIndex = new HashMap<>();
+        private final List<String> dict = new ArrayList<>();
+        private final Out body = new Out(4096);
+        private final Out record = new Out(256);
+        private final CRC32 crc = new CRC32();
+        private int count;
+
+        void add(String key, PlayerSettings ps) {
+            record.reset();
+            UUID uuid = parseUuid(key);
+            if (uuid != null) {
+                record.write(KEY_UUID);
+                record.writeLong(uuid.getMostSignificantBits());
+                record.writeLong(uuid.getLeastSignificantBits());
+            } else {
+                record.write(KEY_STRING);
+                record.writeString(key);
+            }
+            int flags = (ps.brackets ? FLAG_BRACKETS : 0) | (ps.beforeName ? FLAG_BEFORE_NAME : 0) | (ps.autoAfk ? FLAG_AUTO_AFK : 0);
+            record.write(flags);
+            record.writeString(ps.status);
+            record.writeVarint(dictRef(ps.color));
+            record.writeVarint(dictRef(ps.fontStyle));
+            record.writeVarint(ps.statusWords);
+            record.writeLong(ps.lastStatusChangeAtMs);
+            record.writeLong(ps.statusExpiresAtMs);
+            record.writeLong(ps.lastActivityAtMs);
+            if (ps.statusHistory == null) {
+                record.writeVarint(0);
+            } else {
+                record.writeVarint(ps.statusHistory.size() + 1);
+                for (String h : ps.statusHistory) record.writeString(h);
+            }
+            if (ps.statusByWorld == null) {
+                record.writeVarint(0);
+            } else {
+                record.writeVarint(ps.statusByWorld.size() + 1);
+                for (Map.Entry<String, String> e : ps.statusByWorld.entrySet()) {
+                    record.writeString(e.getKey());
+                    record.writeString(e.getValue());
+                }
+            }
+            if (ps.colorByWorld == null) {
+                record.writeVarint(0);
+            } else {
+                record.writeVarint(ps.colorByWorld.size() + 1);
+                for (Map.Entry<String, String> e : ps.colorByWorld.entrySet()) {
+                    record.writeString(e.getKey());
+                    record.writeVarint(dictRef(e.getValue()));
+                }
+            }
+            crc.reset();
+            crc.update(record.buffer(), 0, record.size());
+            body.writeInt(record.size());
+            body.writeInt((int) crc.getValue());
+            body.write(record.buffer(), 0, record.size());
+            count++;
+        }
+
+        private int dictRef(String value) {
+            if (value == null) return 0;
+            Integer idx = dictIndex.get(value);
+            if (idx == null) {
+                idx = dict.size();
+                dict.add(value);
+                dictIndex.put(value, idx);
+            }
+            return idx + 1;
+        }
+
+        byte[] toByteArray() {
+            Out header = new Out(64 + dict.size() * 16);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(count);
+            header.writeVarint(dict.size());
+            for (String s : dict) header.writeString(s);
+            byte[] out = new byte[header.size() + body.size()];
+            System.arraycopy(header.buffer(), 0, out, 0, header.size());
+            System.arraycopy(body.buffer(), 0, out, header.size(), body.size());
+            return out;
+        }
+    }
+
+    /**
+     * Read view over a {@code players.bin} file. Opening only parses the header and the
+     * dictionary and records where each record starts; records are decoded (and their CRC
+     * checked) one at a time by {@link #decode(int)}.
+     */
+    static final class Reader {
+        private final ByteBuffer buf;
+        private final String[] dict;
+        private final int[] offsets;
+
+        private Reader(ByteBuffer buf) throws IOException {
+            this.buf = buf;
+            try {
+                if (buf.getInt(0) != MAGIC) throw new IOException("not a players.bin file");
+                int version = buf.getInt(4);
+                if (version != VERSION) throw new IOException("unsupported players.bin version " + version);
+                int count = buf.getInt(8);
+                // Every record has an 8-byte header and every string at least one byte, so
+                // larger counts can only come from a damaged header; checked before allocating.
+                if (count < 0 || count > (buf.limit() - 12) / 8) throw new IOException("invalid record count " + count);
+                ByteBuffer in = buf.duplicate();
+                in.position(12);
+                int dictSize = readVarint(in);
+                if (dictSize < 0 || dictSize > in.remaining()) throw new IOException("invalid dictionary size " + dictSize);
+                dict = new String[dictSize];
+                for (int i = 0; i < dictSize; i++) dict[i] = readString(in);
+                offsets = new int[count];
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = in.position();
+                    int length = in.getInt();
+                    if (length < 0 || length > in.remaining() - 4) throw new IOException("truncated record " + i);
+                    in.position(in.position() + 4 + length);
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("truncated players.bin", e);
+            }
+        }
+
+        /**
+         * Maps the file read-only. On Windows a mapped file cannot be replaced until the
+         * mapping is garbage collected, which would block the next atomic snapshot move,
+         * so the bytes are read onto the heap there instead.
+         */
+        static Reader open(Path path) throws IOException {
+            if (System.getProperty("os.name", "").toLowerCase().startsWith("windows")) {
+                return new Reader(ByteBuffer.wrap(Files.readAllBytes(path)));
+            }
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new Reader(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+            }
+        }
+
+        static Reader of(byte[] data) throws IOException {
+            return new Reader(ByteBuffer.wrap(data));
+        }
+
+        int size() {
+            return offsets.length;
+        }
+
+        /**
+         * Finds a record by key without decoding any other record. Returns -1 if absent.
+         */
+        int find(String key) {
+            UUID uuid = parseUuid(key);
+            for (int i = 0; i < offsets.length; i++) {
+                ByteBuffer in = payload(i);
+                int kind = in.get();
+                if (uuid != null && kind == KEY_UUID) {
+                    if (in.getLong() == uuid.getMostSignificantBits() && in.getLong() == uuid.getLeastSignificantBits()) return i;
+                } else if (uuid == null && kind == KEY_STRING) {
+                    if (key.equals(readString(in))) return i;
+                }
+            }
+            return -1;
+        }
+
+        String key(int index) {
+            ByteBuffer in = payload(index);
+            return in.get() == KEY_UUID ? new UUID(in.getLong(), in.getLong()).toString() : readString(in);
+        }
+
+        /**
+         * Decodes one record. Throws if its checksum does not match.
+         */
+        PlayerSettings decode(int index) throws IOException {
+            ByteBuffer in = payload(index);
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if ((int) crc.getValue() != buf.getInt(offsets[index] + 4)) {
+                throw new IOException("checksum mismatch in record " + index);
+            }
+            try {
+                if (in.get() == KEY_UUID) in.position(in.position() + 16);
+                else readString(in);
+                PlayerSettings ps = new PlayerSettings();
+                int flags = in.get();
+                ps.brackets = (flags & FLAG_BRACKETS) != 0;
+                ps.beforeName = (flags & FLAG_BEFORE_NAME) != 0;
+                ps.autoAfk = (flags & FLAG_AUTO_AFK) != 0;
+                ps.status = readString(in);
+                ps.color = dictLookup(readVarint(in));
+                ps.fontStyle = dictLookup(readVarint(in));
+                ps.statusWords = readVarint(in);
+                ps.lastStatusChangeAtMs = in.getLong();
+                ps.statusExpiresAtMs = in.getLong();
+                ps.lastActivityAtMs = in.getLong();
+                int history = readVarint(in);
+                ps.statusHistory = history == 0 ? null : new StatusHistory();
+                for (int i = 1; i < history; i++) ps.statusHistory.add(readString(in));
+                int worlds = readVarint(in);
+                ps.statusByWorld = worlds == 0 ? null : new HashMap<>();
+                for (int i = 1; i < worlds; i++) ps.statusByWorld.put(readString(in), readString(in));
+                int colors = readVarint(in);
+                ps.colorByWorld = colors == 0 ? null : new HashMap<>();
+                for (int i = 1; i < colors; i++) ps.colorByWorld.put(readString(in), dictLookup(readVarint(in)));
+                return ps;
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("malformed record " + index, e);
+            }
+        }
+
+        private ByteBuffer payload(int index) {
+            int offset = offsets[index];
+            int length = buf.getInt(offset);
+            ByteBuffer in = buf.duplicate();
+            in.position(offset + 8);
+            in.limit(offset + 8 + length);
+            return in.slice();
+        }
+
+        private String dictLookup(int ref) throws IOException {
+            if (ref == 0) return null;
+            if (ref > dict.length) throw new IOException("dictionary index out of range: " + ref);
+            return dict[ref - 1];
+        }
+    }
+
+    private static UUID parseUuid(String key) {
+        if (key == null || key.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(key);
+            // Only canonical lower-case keys are packed; anything else is kept verbatim.
+            return uuid.toString().equals(key) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IndexOutOfBoundsException("varint too long");
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = readVarint(in);
+        if (len == 0) return null;
+        if (len < 0 || len - 1 > in.remaining()) throw new IndexOutOfBoundsException("string length out of range: " + len);
+        byte[] bytes = new byte[len - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Out extends ByteArrayOutputStream {
+        Out(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeVarint(int v) {
+            while ((v & ~0x7F) != 0) {
+                write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.teufel.statusmod.storage;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Append-only log of per-player changes used by {@link SettingsStorage} in journal mode.
+ * Each line holds the full settings of one UUID, so replay is "last record wins".
+ * Compaction rotates the live log to {@code .old}, writes a fresh base snapshot and then
+ * discards the rotated segment. All methods are synchronized on the journal itself.
+ */
+final class SettingsJournal {
+    private final Path file;
+    private final Path rotated;
+    private final Gson gson;
+    private OutputStream writer;
+    private long size;
+    private long generation;
+
+    SettingsJournal(Path file, Gson gson) {
+        this.file = file;
+        this.rotated = file.resolveSibling(file.getFileName().toString() + ".old");
+        this.gson = gson;
+        try {
+            this.size = Files.exists(file) ? Files.size(file) : 0L;
+        } catch (IOException e) {
+            this.size = 0L;
+        }
+    }
+
+    /**
+     * Applies the rotated segment (left behind by an interrupted compaction) and the live
+     * log on top of {@code into}. Returns the number of records applied.
+     */
+    synchronized int replay(Map<String, PlayerSettings> into) {
+        return replayFile(rotated, into) + replayFile(file, into);
+    }
+
+    private int replayFile(Path path, Map<String, PlayerSettings> into) {
+        if (!Files.exists(path)) return 0;
+        int applied = 0;
+        int line = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String raw;
+            while ((raw = reader.readLine()) != null) {
+                line++;
+                if (raw.isBlank()) continue;
+                try {
+                    Record r = gson.fromJson(raw, Record.class);
+                    if (r == null || r.uuid == null || r.uuid.isBlank()) continue;
+                    if (r.settings == null) into.remove(r.uuid);
+                    else into.put(r.uuid, r.settings);
+                    applied++;
+                } catch (Exception e) {
+                    // Usually a torn last line from a crash mid-append; everything before it is intact.
+                    System.err.println("[StatusMod] Skipping unreadable journal record " + path.getFileName() + ":" + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[StatusMod] Failed to replay " + path.getFileName() + ": " + e.getMessage());
+        }
+        return applied;
+    }
+
+    /**
+     * Serializes one record. Done on the thread that made the change, so the record reflects
+     * the settings at that moment even though {@link #append(String)} runs later.
+     */
+    String encode(String uuid, PlayerSettings settings) {
+        return gson.toJson(new Record(uuid, settings));
+    }
+
+    synchronized void append(String line) throws IOException {
+        if (writer == null) {
+            writer = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        }
+        // Counted in bytes like the size read from disk on open, so non-ASCII statuses do
+        // not skew compaction.
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        writer.write(bytes);
+        writer.write('\n');
+        size += bytes.length + 1;
+    }
+
+    synchronized void flush() throws IOException {
+        if (writer != null) writer.flush();
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Closes the live log and moves it aside so new appends start a fresh file. If an older
+     * rotated segment is still present (its snapshot never landed) the live log is appended to it.
+     * Returns the rotation generation to hand back to {@link #discardRotated(long)}.
+     */
+    synchronized long rotate() throws IOException {
+        close();
+        generation++;
+        if (!Files.exists(file)) return generation;
+        if (Files.exists(rotated)) {
+            Files.write(rotated, Files.readAllBytes(file), StandardOpenOption.APPEND);
+            Files.delete(file);
+        } else {
+            Files.move(file, rotated, StandardCopyOption.REPLACE_EXISTING);
+        }
+        size = 0L;
+        return generation;
+    }
+
+    /**
+     * Called once the snapshot covering the rotated segment is safely on disk. Ignored if the
+     * journal has been rotated again since; the newer snapshot will discard the segment.
+     */
+    synchronized void discardRotated(long rotation) {
+        if (rotation != generation) return;
+        try {
+            Files.deleteIfExists(rotated);
+        } catch (IOException e) {
+            System.err.println("[StatusMod] Failed to delete " + rotated.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("[StatusMod] Failed to close " + file.getFileName() + ": " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    private static final class Record {
+        String uuid;
+        PlayerSettings settings;
+
+        Record(String uuid, PlayerSettings settings) {
+            this.uuid = uuid;
+            this.settings = settings;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.teufel.statusmod.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sharded on-disk layout for {@link SettingsStorage}: 256 bucket files
+ * {@code players/00.json .. players/ff.json} keyed by the first byte of the UUID.
+ * A change only rewrites its own bucket and a cache miss only scans the missing player's bucket.
+ */
+final class SettingsShards {
+    static final int SHARD_COUNT = 256;
+    private static final Type MAP_TYPE = new TypeToken<Map<String, PlayerSettings>>(){}.getType();
+
+    private final File dir;
+    private final Gson gson;
+    /** Corrupt buckets that could not be moved aside; read as empty until they are rewritten. */
+    private final Set<Integer> quarantined = ConcurrentHashMap.newKeySet();
+
+    SettingsShards(File dir, Gson gson) {
+        this.dir = dir;
+        this.gson = gson;
+    }
+
+    static int shardOf(String uuid) {
+        if (uuid != null && uuid.length() >= 2) {
+            int hi = Character.digit(uuid.charAt(0), 16);
+            int lo = Character.digit(uuid.charAt(1), 16);
+            if (hi >= 0 && lo >= 0) return (hi << 4) | lo;
+        }
+        return (uuid == null ? 0 : uuid.hashCode()) & (SHARD_COUNT - 1);
+    }
+
+    private File fileFor(int shard) {
+        return new File(dir, String.format("%02x.json", shard));
+    }
+
+    /**
+     * Reads one bucket. A bucket that fails to parse is moved aside once as
+     * {@code xx.corrupt-<time>.json} and treated as empty, like the single-file layout does.
+     */
+    Map<String, PlayerSettings> read(int shard) {
+        File f = fileFor(shard);
+        if (!f.exists() || quarantined.contains(shard)) return new HashMap<>();
+        try {
+            Map<String, PlayerSettings> entries;
+            try (Reader fr = Files.newBufferedReader(f.toPath())) {
+                entries = gson.fromJson(fr, MAP_TYPE);
+            }
+            if (entries == null) return new HashMap<>();
+            entries.remove(null);
+            return entries;
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to load shard " + f.getName() + ", quarantining it");
+            e.printStackTrace();
+            quarantine(shard, f);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Point read of a single player. The bucket is streamed and every other entry is skipped
+     * without being materialized. Returns null if the player is not stored.
+     */
+    PlayerSettings readOne(int shard, String uuid) {
+        File f = fileFor(shard);
+        if (!f.exists() || quarantined.contains(shard)) return null;
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(f.toPath()))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (uuid.equals(key)) return gson.fromJson(reader, PlayerSettings.class);
+                reader.skipValue();
+            }
+            return null;
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to load shard " + f.getName() + ", quarantining it");
+            e.printStackTrace();
+            quarantine(shard, f);
+            return null;
+        }
+    }
+
+    /**
+     * Rewrites one bucket with {@code changed} laid over what is currently on disk, so entries
+     * that were evicted from memory are preserved.
+     */
+    void writeMerged(int shard, JsonObject changed) throws Exception {
+        JsonObject merged = readRaw(shard);
+        for (Map.Entry<String, JsonElement> e : changed.entrySet()) {
+            merged.add(e.getKey(), e.getValue());
+        }
+        write(shard, gson.toJson(merged));
+    }
+
+    private JsonObject readRaw(int shard) {
+        File f = fileFor(shard);
+        if (!f.exists() || quarantined.contains(shard)) return new JsonObject();
+        try (Reader fr = Files.newBufferedReader(f.toPath())) {
+            JsonElement root = JsonParser.parseReader(fr);
+            return root != null && root.isJsonObject() ? root.getAsJsonObject() : new JsonObject();
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to load shard " + f.getName() + ", quarantining it");
+            quarantine(shard, f);
+            return new JsonObject();
+        }
+    }
+
+    void write(int shard, String json) throws Exception {
+        StorageEngine.writeAtomic(fileFor(shard).toPath(), json);
+        quarantined.remove(shard);
+    }
+
+    /**
+     * Moves a corrupt bucket to {@code xx.corrupt-<time>.json} so it is backed up and reported
+     * only once. If it cannot be moved, it is copied and remembered as empty instead.
+     */
+    private void quarantine(int shard, File f) {
+        if (!quarantined.add(shard)) return;
+        String backupName = String.format("%02x.corrupt-%d.json", shard, System.currentTimeMillis());
+        try {
+            Files.move(f.toPath(), f.toPath().resolveSibling(backupName));
+            quarantined.remove(shard);
+        } catch (Exception e) {
+            StorageEngine.backupCorrupted(f.toPath(), backupName);
+        }
+    }
+
+    /**
+     * One-shot migration from the single-file {@code players.json}. Entries are merged over any
+     * existing buckets and the legacy file is renamed to {@code players.json.migrated-<time>}.
+     * An unreadable legacy file is backed up and removed; a failed bucket write keeps it in place
+     * so the migration is retried on the next start.
+     */
+    void migrateFrom(File legacy) {
+        if (!legacy.exists()) return;
+        Map<String, PlayerSettings> all;
+        try (Reader fr = Files.newBufferedReader(legacy.toPath())) {
+            all = gson.fromJson(fr, MAP_TYPE);
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to read players.json for shard migration");
+            e.printStackTrace();
+            StorageEngine.backupCorrupted(legacy.toPath(), "players.corrupt-" + System.currentTimeMillis() + ".json");
+            try {
+                Files.deleteIfExists(legacy.toPath());
+            } catch (Exception ignored) {}
+            return;
+        }
+        if (all == null) all = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        Map<String, PlayerSettings>[] buckets = new Map[SHARD_COUNT];
+        for (Map.Entry<String, PlayerSettings> e : all.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            int shard = shardOf(e.getKey());
+            if (buckets[shard] == null) buckets[shard] = read(shard);
+            buckets[shard].put(e.getKey(), e.getValue());
+        }
+        try {
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                if (buckets[i] != null) write(i, gson.toJson(buckets[i]));
+            }
+            Path target = legacy.toPath().resolveSibling("players.json.migrated-" + System.currentTimeMillis());
+            Files.move(legacy.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("[StatusMod] Migrated " + all.size() + " players from players.json into " + dir.getName() + "/");
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Shard migration failed, players.json kept");
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,35 +1,126 @@
 package com.teufel.statusmod.storage;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.teufel.statusmod.util.FontMapper;
+import com.teufel.statusmod.util.Perf;
 
 import java.io.File;
-import java.io.Reader;
-import java.io.Writer;
-import java.lang.reflect.Type;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Player settings store. Lookups are lock-free reads of a {@link ConcurrentHashMap}; writes
+ * to the same UUID are serialized on one of {@link #STRIPES} stripe locks so that map order
+ * and journal order agree. All disk writes run on the {@link StorageEngine} I/O thread:
+ * periodically in write-behind mode, otherwise as a group commit right after the change.
+ * The I/O thread never reads the live settings that commands change in place: every recorded
+ * change installs an entry with its own copy under the stripe lock, and only those copies are
+ * serialized.
+ */
+public class SettingsStorage implements StorageEngine.Store {
+    private static final int STRIPES = 64;
+    private static final int PARALLEL_SANITIZE_THRESHOLD = 4096;
+    private static final int MIGRATION_BATCH = 500;
 
-public class SettingsStorage {
     private final File file;
-    private Map<String, PlayerSettings> map = new HashMap<>();
+    private final File binaryFile;
+    private final boolean binary;
+    private final ConcurrentHashMap<String, Slot> map = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
     private final Gson gson = new Gson();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final boolean writeBehind;
+    private final SettingsJournal journal;
+    private final long journalCompactBytes;
+    private final AtomicLong snapshotSeq = new AtomicLong();
+    private long lastWrittenSeq = 0L;
+    private final SettingsShards shards;
+    private final AtomicLongArray shardChangeSeq;
+    private final AtomicLongArray shardFlushedSeq;
+    private final StorageBackend backend;
+    private final Set<String> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final int cacheCapacity;
+    private final Set<String> pinned = ConcurrentHashMap.newKeySet();
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder cacheEvictions = new LongAdder();
+    private final AtomicLong accessClock = new AtomicLong();
 
     public SettingsStorage() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
         File configDir = new File("config/statusmod");
         configDir.mkdirs();
         file = new File(configDir, "players.json");
+        binaryFile = new File(configDir, "players.bin");
+        ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+        writeBehind = cfg == null || cfg.storageWriteBehind;
+        String backendId = cfg == null ? StorageBackends.DEFAULT_ID : cfg.storageBackend;
+        // storageMode only selects the layout of the JSON backend; a failed backend falls back to it.
+        backend = StorageBackends.DEFAULT_ID.equals(backendId) ? null : StorageBackends.open(backendId, configDir);
+        boolean fileLayout = backend == null;
+        boolean journaled = fileLayout && cfg != null && "journal".equals(cfg.storageMode);
+        journal = journaled ? new SettingsJournal(new File(configDir, "players.journal").toPath(), gson) : null;
+        journalCompactBytes = (cfg == null ? 1024L : cfg.storageJournalCompactKb) * 1024L;
+        binary = fileLayout && cfg != null && "binary".equals(cfg.storageMode);
+        boolean sharded = fileLayout && cfg != null && "sharded".equals(cfg.storageMode);
+        shards = sharded ? new SettingsShards(new File(configDir, "players"), gson) : null;
+        shardChangeSeq = sharded ? new AtomicLongArray(SettingsShards.SHARD_COUNT) : null;
+        shardFlushedSeq = sharded ? new AtomicLongArray(SettingsShards.SHARD_COUNT) : null;
+        // Only the sharded layout and database backends support point reads, so only there can
+        // cold entries be dropped.
+        cacheCapacity = (sharded || backend != null) && cfg != null ? cfg.storageCacheSize : 0;
         load();
+        StorageEngine.get().register(this);
+        if (writeBehind || journal != null || cacheCapacity > 0) {
+            long interval = cfg == null ? 5_000L : cfg.storageFlushIntervalMs;
+            StorageEngine.get().scheduleWithFixedDelay(this::flushIfDirty, interval);
+        }
     }
 
-    public synchronized PlayerSettings forPlayer(String uuid) {
+    /**
+     * Read-only lookup for hot paths (tick loop, tab completion). Never creates a default
+     * entry, never reads from disk and never schedules a write. Returns null if the player
+     * is not cached.
+     */
+    public PlayerSettings peek(String uuid) {
+        if (uuid == null) return null;
+        Slot slot = map.get(uuid);
+        return slot == null ? null : slot.settings;
+    }
+
+    public PlayerSettings forPlayer(String uuid) {
         if (uuid == null || uuid.isBlank()) return new PlayerSettings();
-        PlayerSettings s = map.get(uuid);
+        Slot slot = map.get(uuid);
+        if (slot != null) {
+            cacheHits.increment();
+            slot.lastAccess = accessClock.incrementAndGet();
+            return slot.settings;
+        }
+        cacheMisses.increment();
+        PlayerSettings s = loadCold(uuid);
+        boolean changed = false;
         if (s == null) {
             s = new PlayerSettings();
             try {
@@ -39,63 +130,582 @@ public class SettingsStorage {
                 }
             } catch (Exception ignored) {}
             sanitizeSettings(s);
-            map.put(uuid, s);
-            save();
+            changed = true;
+        } else if (sanitizeSettings(s)) {
+            changed = true;
+        }
+        synchronized (stripeFor(uuid)) {
+            Slot fresh = new Slot(s, accessClock.incrementAndGet(), changed ? s.copy() : null);
+            Slot existing = map.putIfAbsent(uuid, fresh);
+            // Another thread resolved the same miss first; its instance wins.
+            if (existing != null) return existing.settings;
+            if (changed) recordChange(uuid, s);
         }
         return s;
     }
 
-    public synchronized void put(String uuid, PlayerSettings s) {
+    /**
+     * Like {@link #forPlayer}, but an entry that has to be read from disk (sharded layout or
+     * database backend) is read on the I/O thread. The future completes on that thread; until
+     * then {@link #isLoading} is true for the player.
+     */
+    public CompletableFuture<PlayerSettings> forPlayerAsync(String uuid) {
+        if (uuid == null || map.containsKey(uuid) || (shards == null && backend == null)) {
+            return CompletableFuture.completedFuture(forPlayer(uuid));
+        }
+        loading.add(uuid);
+        return StorageEngine.get().supply(() -> forPlayer(uuid)).whenComplete((s, e) -> loading.remove(uuid));
+    }
+
+    /**
+     * True while {@link #forPlayerAsync} is still reading the player's entry.
+     */
+    public boolean isLoading(String uuid) {
+        return uuid != null && loading.contains(uuid);
+    }
+
+    public void put(String uuid, PlayerSettings s) {
         if (uuid == null || uuid.isBlank() || s == null) return;
-        sanitizeSettings(s);
-        map.put(uuid, s);
-        save();
+        synchronized (stripeFor(uuid)) {
+            sanitizeSettings(s);
+            map.put(uuid, new Slot(s, accessClock.incrementAndGet(), s.copy()));
+            recordChange(uuid, s);
+        }
+    }
+
+    private Object stripeFor(String uuid) {
+        return stripes[(uuid.hashCode() & 0x7fffffff) % STRIPES];
     }
 
-    public synchronized void load() {
+    /**
+     * Keeps an online player's entry in memory regardless of cache pressure.
+     */
+    public void pin(String uuid) {
+        if (uuid != null) pinned.add(uuid);
+    }
+
+    public void unpin(String uuid) {
+        if (uuid != null) pinned.remove(uuid);
+    }
+
+    public String getBackendId() {
+        return backend == null ? StorageBackends.DEFAULT_ID : backend.getId();
+    }
+
+    public CacheStats getCacheStats() {
+        return new CacheStats(map.size(), cacheCapacity, cacheHits.sum(), cacheMisses.sum(), cacheEvictions.sum());
+    }
+
+    /**
+     * In journal mode a single change costs one appended record; the base snapshot is
+     * only rewritten by compaction. In sharded mode only the player's bucket is marked.
+     * Otherwise the whole map is marked dirty. Called with the UUID's stripe held, so records
+     * for one UUID reach the I/O queue in the order the map saw them.
+     */
+    private void recordChange(String uuid, PlayerSettings s) {
+        if (shards != null) {
+            shardChangeSeq.incrementAndGet(SettingsShards.shardOf(uuid));
+            markDirty();
+            return;
+        }
+        if (backend != null) {
+            dirtyKeys.add(uuid);
+            markDirty();
+            return;
+        }
+        if (journal == null) {
+            markDirty();
+            return;
+        }
+        String record;
         try {
-            if (!file.exists()) return;
-            Type t = new TypeToken<Map<String, PlayerSettings>>(){}.getType();
-            try (Reader fr = Files.newBufferedReader(file.toPath())) {
-                map = gson.fromJson(fr, t);
+            record = journal.encode(uuid, s);
+        } catch (Exception e) {
+            markDirty();
+            return;
+        }
+        StorageEngine.get().submit(() -> {
+            try {
+                journal.append(record);
+                if (!writeBehind) journal.flush();
+            } catch (Exception e) {
+                System.err.println("[StatusMod] Failed to append to players.journal, falling back to snapshot: " + e.getMessage());
+                markDirty();
+            }
+        });
+    }
+
+    /**
+     * Loads an entry that is not in memory. Only the sharded layout and database backends keep
+     * anything on disk that is not also cached; the other layouts report a miss as "unknown player".
+     * A failed database read yields untracked defaults so the stored row is not overwritten.
+     */
+    private PlayerSettings loadCold(String uuid) {
+        if (backend != null) {
+            try {
+                return backend.load(uuid);
+            } catch (Exception e) {
+                System.err.println("[StatusMod] Failed to read " + uuid + " from storage backend " + backend.getId());
+                e.printStackTrace();
+                return new PlayerSettings();
+            }
+        }
+        if (shards == null) return null;
+        return shards.readOne(SettingsShards.shardOf(uuid), uuid);
+    }
+
+    private boolean hasUnwrittenChanges(String uuid) {
+        if (backend != null) return dirtyKeys.contains(uuid);
+        int shard = SettingsShards.shardOf(uuid);
+        return shardChangeSeq.get(shard) > shardFlushedSeq.get(shard);
+    }
+
+    /**
+     * Drops least recently used entries once the cache is over capacity. Online players and
+     * entries whose bucket still has unwritten changes are skipped. Runs on the I/O thread.
+     */
+    private void evictIfNeeded() {
+        if (cacheCapacity <= 0 || map.size() <= cacheCapacity) return;
+        List<Map.Entry<String, Slot>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Slot> e : map.entrySet()) {
+            if (!pinned.contains(e.getKey())) candidates.add(e);
+        }
+        candidates.sort((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess));
+        int excess = map.size() - cacheCapacity;
+        for (Map.Entry<String, Slot> e : candidates) {
+            if (excess <= 0) break;
+            if (hasUnwrittenChanges(e.getKey())) continue;
+            // Conditional remove: a concurrent put() installs a new slot and keeps the entry.
+            if (map.remove(e.getKey(), e.getValue())) {
+                cacheEvictions.increment();
+                excess--;
             }
-            if (map == null) map = new HashMap<>();
-            boolean migrated = false;
-            for (Map.Entry<String, PlayerSettings> e : map.entrySet()) {
-                PlayerSettings ps = e.getValue();
-                if (ps == null) {
-                    ps = new PlayerSettings();
-                    e.setValue(ps);
-                    migrated = true;
+        }
+    }
+
+    /**
+     * Records that the in-memory map differs from disk. In write-behind mode the
+     * periodic flush coalesces all changes into one snapshot per interval; otherwise
+     * the store joins the storage engine's next group commit.
+     */
+    public void markDirty() {
+        dirty.set(true);
+        if (!writeBehind) StorageEngine.get().markDirty(this);
+    }
+
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Writes everything right away on the I/O thread. Used by {@code /status admin flush};
+     * the returned future completes once the data is on disk.
+     */
+    public CompletableFuture<Void> flush() {
+        return StorageEngine.get().submit(() -> {
+            flushJournal();
+            dirty.set(false);
+            save();
+        });
+    }
+
+    /**
+     * Copies every stored player into {@code target} on the I/O thread, after pending changes
+     * have been written. The target is opened and closed here; completes with the number of
+     * players copied. Written in batches, or in one go for targets that rewrite everything on
+     * each upsert. The active backend is not switched.
+     */
+    public CompletableFuture<Integer> migrateTo(StorageBackend target) {
+        return StorageEngine.get().supply(() -> {
+            target.open(new File("config/statusmod"));
+            try {
+                commit();
+                Map<String, PlayerSettings> batch = new HashMap<>();
+                int[] copied = {0};
+                int batchSize = target.rewritesOnUpsert() ? Integer.MAX_VALUE : MIGRATION_BATCH;
+                BiConsumer<String, PlayerSettings> sink = (uuid, settings) -> {
+                    batch.put(uuid, settings);
+                    copied[0]++;
+                    if (batch.size() >= batchSize) upsertBatch(target, batch);
+                };
+                if (backend != null) {
+                    backend.forEach(sink);
+                } else if (shards != null) {
+                    for (int i = 0; i < SettingsShards.SHARD_COUNT; i++) shards.read(i).forEach(sink);
+                } else {
+                    for (Map.Entry<String, Slot> e : map.entrySet()) sink.accept(e.getKey(), e.getValue().stored);
                 }
-                if (sanitizeSettings(ps)) migrated = true;
+                upsertBatch(target, batch);
+                return copied[0];
+            } catch (IllegalStateException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            } finally {
+                target.close();
+            }
+        });
+    }
+
+    private static void upsertBatch(StorageBackend target, Map<String, PlayerSettings> batch) {
+        try {
+            target.upsert(batch);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        batch.clear();
+    }
+
+    @Override
+    public String name() {
+        if (backend != null) return "storage backend " + backend.getId();
+        return shards != null ? "players/" : binary ? binaryFile.getName() : file.getName();
+    }
+
+    /**
+     * Called by the storage engine on the I/O thread for group commits and on drain.
+     * Throws if the snapshot could not be written so the engine retries it.
+     */
+    @Override
+    public void commit() throws Exception {
+        flushJournal();
+        if (dirty.getAndSet(false) && !writeAll()) {
+            throw new java.io.IOException("player settings were not fully written");
+        }
+    }
+
+    private void flushJournal() {
+        if (journal == null) return;
+        try {
+            journal.flush();
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to flush players.journal: " + e.getMessage());
+        }
+    }
+
+    private void flushIfDirty() {
+        try {
+            if (journal != null) {
+                flushJournal();
+                if (journal.size() >= journalCompactBytes) dirty.set(true);
             }
-            if (migrated) save();
+            if (dirty.getAndSet(false)) save();
+            evictIfNeeded();
         } catch (Exception e) {
-            System.err.println("[StatusMod] Failed to load players.json, keeping in-memory defaults");
+            // Never let an exception cancel the periodic task.
+            dirty.set(true);
             e.printStackTrace();
-            safeBackupCorrupted(file.toPath(), "players.corrupt-" + System.currentTimeMillis() + ".json");
-            map = new HashMap<>();
         }
     }
 
-    public synchronized void save() {
+    /**
+     * Streams {@code players.json} entry by entry instead of building a DOM or one big map in
+     * a single {@code fromJson} call. Sanitizing runs in parallel for large files, and a
+     * rewrite caused by migrated entries is left to the periodic flush (or the next write) instead
+     * of happening on the startup path. If only the other snapshot format exists (the mode was
+     * switched between {@code binary} and {@code snapshot}/{@code journal}), it is converted
+     * once and renamed to {@code <name>.migrated-<time>}.
+     */
+    public void load() {
+        long t = Perf.start();
+        try {
+            loadSnapshot();
+        } finally {
+            Perf.record(Perf.Phase.STORAGE_LOAD, t);
+        }
+    }
+
+    private void loadSnapshot() {
+        // Database rows are read on demand.
+        if (backend != null) return;
+        if (shards != null) {
+            // Buckets are read lazily; only a leftover single-file players.json is handled here.
+            shards.migrateFrom(file);
+            return;
+        }
+        long started = System.nanoTime();
+        File primary = binary ? binaryFile : file;
+        File other = binary ? file : binaryFile;
+        File source = !primary.exists() && other.exists() ? other : primary;
+        Map<String, PlayerSettings> loaded;
         try {
-            File parent = file.getParentFile();
-            if (parent != null && !parent.exists()) parent.mkdirs();
-            if (map == null) map = new HashMap<>();
-            Path target = file.toPath();
-            Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-            try (Writer fw = Files.newBufferedWriter(tmp)) {
-                gson.toJson(map, fw);
+            loaded = source == binaryFile ? readBinarySnapshot() : readSnapshot();
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to load " + source.getName() + ", keeping in-memory defaults");
+            e.printStackTrace();
+            String ext = source == binaryFile ? ".bin" : ".json";
+            StorageEngine.backupCorrupted(source.toPath(), "players.corrupt-" + System.currentTimeMillis() + ext);
+            loaded = new HashMap<>();
+            source = primary;
+        }
+        // Replayed records are folded into the base snapshot by the next compaction.
+        AtomicBoolean migrated = new AtomicBoolean(journal != null && journal.replay(loaded) > 0);
+        map.clear();
+        Stream<Map.Entry<String, PlayerSettings>> entries = loaded.size() >= PARALLEL_SANITIZE_THRESHOLD
+            ? loaded.entrySet().parallelStream()
+            : loaded.entrySet().stream();
+        entries.forEach(e -> {
+            if (e.getKey() == null) return;
+            PlayerSettings ps = e.getValue();
+            if (ps == null) {
+                ps = new PlayerSettings();
+                migrated.set(true);
             }
+            if (sanitizeSettings(ps)) migrated.set(true);
+            map.put(e.getKey(), new Slot(ps, 0L, ps.copy()));
+        });
+        if (migrated.get()) dirty.set(true);
+        if (!loaded.isEmpty()) {
+            System.out.println("[StatusMod] Loaded " + map.size() + " players from " + source.getName() + " in " + ((System.nanoTime() - started) / 1_000_000L) + " ms");
+        }
+        if (source != primary) convertFrom(source, primary);
+    }
+
+    private void convertFrom(File source, File target) {
+        dirty.set(false);
+        save();
+        if (!target.exists()) {
+            System.err.println("[StatusMod] Conversion to " + target.getName() + " failed, " + source.getName() + " kept");
+            return;
+        }
+        try {
+            Path moved = source.toPath().resolveSibling(source.getName() + ".migrated-" + System.currentTimeMillis());
+            Files.move(source.toPath(), moved, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("[StatusMod] Converted " + source.getName() + " to " + target.getName());
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to rename " + source.getName() + " after conversion");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Decodes {@code players.bin}. A record with a bad checksum is skipped; the file is backed
+     * up once and the store marked dirty so the next snapshot drops the damaged record.
+     */
+    private Map<String, PlayerSettings> readBinarySnapshot() throws Exception {
+        Map<String, PlayerSettings> out = new HashMap<>();
+        if (!binaryFile.exists() || binaryFile.length() == 0L) return out;
+        SettingsBinary.Reader reader = SettingsBinary.Reader.open(binaryFile.toPath());
+        int skipped = 0;
+        for (int i = 0; i < reader.size(); i++) {
             try {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-            } catch (Exception ignored) {
-                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                out.put(reader.key(i), reader.decode(i));
+            } catch (Exception e) {
+                skipped++;
+                System.err.println("[StatusMod] Skipping damaged players.bin record " + i + ": " + e.getMessage());
+            }
+        }
+        if (skipped > 0) {
+            StorageEngine.backupCorrupted(binaryFile.toPath(), "players.corrupt-" + System.currentTimeMillis() + ".bin");
+            dirty.set(true);
+        }
+        return out;
+    }
+
+    private Map<String, PlayerSettings> readSnapshot() throws Exception {
+        Map<String, PlayerSettings> out = new HashMap<>();
+        if (!file.exists() || file.length() == 0L) return out;
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(file.toPath()))) {
+            if (reader.peek() == JsonToken.NULL) return out;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String uuid = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    out.put(uuid, null);
+                } else {
+                    out.put(uuid, gson.fromJson(reader, PlayerSettings.class));
+                }
             }
+            reader.endObject();
+        }
+        return out;
+    }
+
+    public void save() {
+        writeAll();
+    }
+
+    /**
+     * Returns false if anything failed; the store is then left dirty for the next pass.
+     */
+    private boolean writeAll() {
+        long t = Perf.start();
+        try {
+            return writeSnapshot();
+        } finally {
+            Perf.record(Perf.Phase.STORAGE_SAVE, t);
+        }
+    }
+
+    private boolean writeSnapshot() {
+        if (backend != null) return saveToBackend();
+        if (shards != null) return saveShards();
+        long seq = snapshotSeq.incrementAndGet();
+        long generation = 0L;
+        byte[] data;
+        try {
+            // Rotate before reading the map: a change that misses this snapshot has
+            // necessarily been appended to the new live journal.
+            if (journal != null) generation = journal.rotate();
+            data = binary ? snapshotBinary() : snapshotJson().getBytes(StandardCharsets.UTF_8);
         } catch (Exception e) {
-            e.printStackTrace();
+            // Serialization failures are retried on the next pass.
+            dirty.set(true);
+            System.err.println("[StatusMod] Failed to snapshot " + (binary ? binaryFile : file).getName() + ", retrying later: " + e);
+            return false;
+        }
+        boolean written = writeSnapshot(data, seq);
+        if (written && journal != null) journal.discardRotated(generation);
+        return written;
+    }
+
+    private String snapshotJson() throws Exception {
+        StringWriter out = new StringWriter();
+        try (JsonWriter w = gson.newJsonWriter(out)) {
+            w.beginObject();
+            for (Map.Entry<String, Slot> e : map.entrySet()) {
+                w.name(e.getKey());
+                gson.toJson(e.getValue().stored, PlayerSettings.class, w);
+            }
+            w.endObject();
+        }
+        return out.toString();
+    }
+
+    private byte[] snapshotBinary() {
+        SettingsBinary.Encoder enc = new SettingsBinary.Encoder();
+        for (Map.Entry<String, Slot> e : map.entrySet()) {
+            enc.add(e.getKey(), e.getValue().stored);
+        }
+        return enc.toByteArray();
+    }
+
+    /**
+     * Writes every bucket with unflushed changes. Cached entries of such a bucket are
+     * serialized and merged over the file, which still holds any entries that were evicted.
+     * The change sequence is captured before the map is read, so a concurrent change always
+     * leaves its bucket dirty for the next pass.
+     */
+    private boolean saveShards() {
+        JsonObject[] changed = new JsonObject[SettingsShards.SHARD_COUNT];
+        long[] seqs = new long[SettingsShards.SHARD_COUNT];
+        try {
+            for (int i = 0; i < SettingsShards.SHARD_COUNT; i++) {
+                long seq = shardChangeSeq.get(i);
+                if (seq > shardFlushedSeq.get(i)) {
+                    changed[i] = new JsonObject();
+                    seqs[i] = seq;
+                }
+            }
+            for (Map.Entry<String, Slot> e : map.entrySet()) {
+                int shard = SettingsShards.shardOf(e.getKey());
+                PlayerSettings stored = e.getValue().stored;
+                // Never changed since it was read: the bucket file already has it.
+                if (changed[shard] != null && stored != null) changed[shard].add(e.getKey(), gson.toJsonTree(stored));
+            }
+        } catch (Exception e) {
+            dirty.set(true);
+            System.err.println("[StatusMod] Failed to snapshot player shards, retrying later: " + e);
+            return false;
+        }
+        boolean failed = false;
+        for (int i = 0; i < SettingsShards.SHARD_COUNT; i++) {
+            if (changed[i] != null && !writeShard(i, changed[i], seqs[i])) failed = true;
+        }
+        if (failed) dirty.set(true);
+        return !failed;
+    }
+
+    /**
+     * Upserts every player changed since the last pass in one batch. Keys are taken out of the
+     * dirty set before their settings are read, so a concurrent change re-adds its key.
+     */
+    private boolean saveToBackend() {
+        if (dirtyKeys.isEmpty()) return true;
+        List<String> keys = new ArrayList<>(dirtyKeys);
+        dirtyKeys.removeAll(keys);
+        Map<String, PlayerSettings> batch = new HashMap<>();
+        for (String key : keys) {
+            Slot slot = map.get(key);
+            if (slot != null && slot.stored != null) batch.put(key, slot.stored);
+        }
+        synchronized (writeLock) {
+            try {
+                backend.upsert(batch);
+                return true;
+            } catch (Exception e) {
+                dirtyKeys.addAll(keys);
+                dirty.set(true);
+                System.err.println("[StatusMod] Failed to write to storage backend " + backend.getId() + ", retrying later");
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    private boolean writeShard(int shard, JsonObject changed, long seq) {
+        synchronized (writeLock) {
+            if (seq <= shardFlushedSeq.get(shard)) return true;
+            try {
+                shards.writeMerged(shard, changed);
+                shardFlushedSeq.set(shard, seq);
+                return true;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    private boolean writeSnapshot(byte[] data, long seq) {
+        synchronized (writeLock) {
+            if (seq < lastWrittenSeq) return true;
+            try {
+                StorageEngine.writeAtomic((binary ? binaryFile : file).toPath(), data);
+                lastWrittenSeq = seq;
+                return true;
+            } catch (Exception e) {
+                dirty.set(true);
+                e.printStackTrace();
+                return false;
+            }
+        }
+    }
+
+    private static final class Slot {
+        final PlayerSettings settings;
+        /**
+         * Copy of {@link #settings} as of the last recorded change, never modified; what the
+         * I/O thread writes. Null for an entry read on demand and not changed since, which is
+         * already on disk as it is. A change installs a new slot.
+         */
+        final PlayerSettings stored;
+        volatile long lastAccess;
+
+        Slot(PlayerSettings settings, long lastAccess, PlayerSettings stored) {
+            this.settings = settings;
+            this.lastAccess = lastAccess;
+            this.stored = stored;
+        }
+    }
+
+    public static final class CacheStats {
+        public final int size;
+        public final int capacity;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        CacheStats(int size, int capacity, long hits, long misses, long evictions) {
+            this.size = size;
+            this.capacity = capacity;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
         }
     }
 
@@ -119,23 +729,21 @@ public class SettingsStorage {
         }
         String normalizedFont = FontMapper.normalizeStyle(ps.fontStyle);
         if (ps.fontStyle == null || !ps.fontStyle.equals(normalizedFont)) { ps.fontStyle = normalizedFont; changed = true; }
-        if (ps.statusHistory == null) { ps.statusHistory = new ArrayList<>(); changed = true; }
+        ps.color = PlayerSettings.canonical(ps.color);
+        ps.fontStyle = PlayerSettings.canonical(ps.fontStyle);
+        if (ps.statusHistory == null) { ps.statusHistory = new StatusHistory(); changed = true; }
         int maxHistory = 5;
         try {
             if (com.teufel.statusmod.StatusMod.getConfig() != null) maxHistory = com.teufel.statusmod.StatusMod.getConfig().statusHistorySize;
         } catch (Exception ignored) {}
-        while (ps.statusHistory.size() > maxHistory) { ps.statusHistory.remove(0); changed = true; }
-        if (ps.statusByWorld == null) { ps.statusByWorld = new HashMap<>(); changed = true; }
-        if (ps.colorByWorld == null) { ps.colorByWorld = new HashMap<>(); changed = true; }
+        if (ps.statusHistory.setLimit(maxHistory)) changed = true;
+        // Empty per-world maps are dropped rather than kept allocated; "{}" and a missing field mean the same.
+        if (ps.statusByWorld != null && ps.statusByWorld.isEmpty()) ps.statusByWorld = null;
+        if (ps.colorByWorld != null) {
+            if (ps.colorByWorld.isEmpty()) ps.colorByWorld = null;
+            else ps.colorByWorld.replaceAll((world, c) -> PlayerSettings.canonical(c));
+        }
         if (ps.lastActivityAtMs <= 0L) { ps.lastActivityAtMs = System.currentTimeMillis(); changed = true; }
         return changed;
     }
-
-    private void safeBackupCorrupted(Path source, String backupName) {
-        try {
-            if (!Files.exists(source)) return;
-            Path backup = source.resolveSibling(backupName);
-            Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
-        } catch (Exception ignored) {}
-    }
 }
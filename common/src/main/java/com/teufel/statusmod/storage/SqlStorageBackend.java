@@ -0,0 +1,120 @@
+package com.teufel.statusmod.storage;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Embedded SQL backend over plain JDBC. Works with any file-mode database whose driver is on
+ * the classpath (SQLite, H2); the URL comes from {@code storageJdbcUrl}. Players are one row
+ * each, keyed by UUID, with the status text in its own indexed column so it can be queried
+ * directly. The full settings are stored as JSON in {@code data}.
+ */
+public class SqlStorageBackend implements StorageBackend {
+    private static final String TABLE = "statusmod_players";
+
+    private final Gson gson = new Gson();
+    private Connection connection;
+
+    @Override
+    public String getId() {
+        return "sql";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        try {
+            DriverManager.getDriver(jdbcUrl());
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static String jdbcUrl() {
+        ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+        return cfg == null ? ModConfig.DEFAULT_JDBC_URL : cfg.storageJdbcUrl;
+    }
+
+    @Override
+    public synchronized void open(File configDir) throws Exception {
+        connection = DriverManager.getConnection(jdbcUrl());
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("CREATE TABLE IF NOT EXISTS " + TABLE + " (uuid VARCHAR(64) NOT NULL PRIMARY KEY, status VARCHAR(64), data TEXT NOT NULL)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS " + TABLE + "_status ON " + TABLE + " (status)");
+        }
+    }
+
+    @Override
+    public synchronized PlayerSettings load(String uuid) throws Exception {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT data FROM " + TABLE + " WHERE uuid = ?")) {
+            ps.setString(1, uuid);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? gson.fromJson(rs.getString(1), PlayerSettings.class) : null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<String, PlayerSettings> sink) throws Exception {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT uuid, data FROM " + TABLE)) {
+            while (rs.next()) {
+                PlayerSettings settings = gson.fromJson(rs.getString(2), PlayerSettings.class);
+                if (settings != null) sink.accept(rs.getString(1), settings);
+            }
+        }
+    }
+
+    /**
+     * Update-then-insert in one transaction; portable across SQLite and H2, which disagree
+     * on upsert syntax.
+     */
+    @Override
+    public synchronized void upsert(Map<String, PlayerSettings> entries) throws Exception {
+        if (entries.isEmpty()) return;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + TABLE + " SET status = ?, data = ? WHERE uuid = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE + " (uuid, status, data) VALUES (?, ?, ?)")) {
+            for (Map.Entry<String, PlayerSettings> e : entries.entrySet()) {
+                String data = gson.toJson(e.getValue());
+                String status = e.getValue().status;
+                update.setString(1, status);
+                update.setString(2, data);
+                update.setString(3, e.getKey());
+                if (update.executeUpdate() == 0) {
+                    insert.setString(1, e.getKey());
+                    insert.setString(2, status);
+                    insert.setString(3, data);
+                    insert.executeUpdate();
+                }
+            }
+            connection.commit();
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("[StatusMod] Failed to close storage database: " + e.getMessage());
+        }
+        connection = null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.teufel.statusmod.storage;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.AbstractList;
+
+/**
+ * Recent statuses of a player, oldest first. Backed by a ring buffer that holds at most
+ * {@link #getLimit()} entries: adding to a full history overwrites the oldest entry instead of
+ * shifting the whole list. The array is only allocated on the first add.
+ * Serialized as a plain JSON array, so existing {@code players.json} files stay compatible.
+ */
+@JsonAdapter(StatusHistory.Adapter.class)
+public final class StatusHistory extends AbstractList<String> {
+    private String[] items;
+    private int head;
+    private int size;
+    private int limit;
+
+    /**
+     * Unbounded until {@link #setLimit(int)} is called; loading keeps every stored entry so
+     * sanitizing can tell whether the file needs to be rewritten.
+     */
+    public StatusHistory() {
+        this.limit = Integer.MAX_VALUE;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Applies a new capacity, dropping the oldest entries that no longer fit.
+     * Returns true if anything was dropped.
+     */
+    public boolean setLimit(int newLimit) {
+        newLimit = Math.max(0, newLimit);
+        boolean dropped = false;
+        while (size > newLimit) {
+            removeFirst();
+            dropped = true;
+        }
+        limit = newLimit;
+        if (items != null && items.length > newLimit) resize(size);
+        return dropped;
+    }
+
+    /**
+     * Moves {@code status} to the newest position, adding it if it is not present yet.
+     */
+    public void push(String status) {
+        remove(status);
+        add(status);
+    }
+
+    /**
+     * An independent history with the same entries and limit.
+     */
+    public StatusHistory copy() {
+        StatusHistory c = new StatusHistory();
+        c.limit = limit;
+        if (size > 0) {
+            c.items = new String[size];
+            for (int i = 0; i < size; i++) c.items[i] = get(i);
+            c.size = size;
+        }
+        return c;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return items[(head + index) % items.length];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(String status) {
+        if (limit == 0) return false;
+        if (size == limit) removeFirst();
+        if (items == null || size == items.length) {
+            long grown = items == null ? 4L : items.length * 2L;
+            resize((int) Math.min(limit, Math.max(size + 1L, grown)));
+        }
+        items[(head + size) % items.length] = status;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public String remove(int index) {
+        String removed = get(index);
+        for (int i = index; i < size - 1; i++) {
+            items[(head + i) % items.length] = items[(head + i + 1) % items.length];
+        }
+        items[(head + size - 1) % items.length] = null;
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        items = null;
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    private void removeFirst() {
+        items[head] = null;
+        head = (head + 1) % items.length;
+        size--;
+        modCount++;
+    }
+
+    private void resize(int capacity) {
+        if (capacity == 0) {
+            items = null;
+            head = 0;
+            return;
+        }
+        String[] next = new String[capacity];
+        for (int i = 0; i < size; i++) next[i] = items[(head + i) % items.length];
+        items = next;
+        head = 0;
+    }
+
+    public static final class Adapter extends TypeAdapter<StatusHistory> {
+        @Override
+        public void write(JsonWriter out, StatusHistory value) throws IOException {
+            out.beginArray();
+            for (String s : value) out.value(s);
+            out.endArray();
+        }
+
+        @Override
+        public StatusHistory read(JsonReader in) throws IOException {
+            StatusHistory history = new StatusHistory();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    history.add(null);
+                } else {
+                    history.add(in.nextString());
+                }
+            }
+            in.endArray();
+            return history;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.teufel.statusmod.storage;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Where player settings live when they are not in memory. Implementations are discovered
+ * with {@link java.util.ServiceLoader} (see {@link StorageBackends}) and selected by
+ * {@code storageBackend} in the config. Methods other than {@link #load(String)} are only
+ * called on the storage I/O thread.
+ */
+public interface StorageBackend {
+    String getId();
+
+    /**
+     * False if the backend cannot run in this installation, e.g. no JDBC driver present.
+     */
+    boolean isAvailable();
+
+    void open(File configDir) throws Exception;
+
+    /**
+     * Point read of one player; null if the player is not stored.
+     */
+    PlayerSettings load(String uuid) throws Exception;
+
+    /**
+     * Visits every stored player. Used by migration.
+     */
+    void forEach(BiConsumer<String, PlayerSettings> sink) throws Exception;
+
+    /**
+     * Inserts or replaces all given players in one batch.
+     */
+    void upsert(Map<String, PlayerSettings> entries) throws Exception;
+
+    /**
+     * True if every {@link #upsert} rewrites all stored players, as a single file does.
+     * Migration then collects everything and upserts once instead of in batches.
+     */
+    default boolean rewritesOnUpsert() {
+        return false;
+    }
+
+    void close();
+}
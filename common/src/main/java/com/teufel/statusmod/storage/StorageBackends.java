@@ -0,0 +1,65 @@
+package com.teufel.statusmod.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Discovers {@link StorageBackend} implementations the same way {@code PlatformServices}
+ * finds the platform. Every call creates fresh instances, since backends hold open files or
+ * connections.
+ */
+public final class StorageBackends {
+    public static final String DEFAULT_ID = "json";
+
+    private StorageBackends() {}
+
+    public static List<StorageBackend> discover() {
+        List<StorageBackend> found = new ArrayList<>();
+        ServiceLoader<StorageBackend> loader = ServiceLoader.load(StorageBackend.class);
+        for (ServiceLoader.Provider<StorageBackend> provider : loader.stream().toList()) {
+            try {
+                found.add(provider.get());
+            } catch (ServiceConfigurationError e) {
+                System.err.println("[StatusMod] Skipping storage backend " + provider.type().getName() + ": " + e.getMessage());
+            }
+        }
+        if (found.stream().noneMatch(b -> DEFAULT_ID.equals(b.getId()))) found.add(new JsonStorageBackend());
+        return found;
+    }
+
+    public static StorageBackend find(String id) {
+        if (id == null) return null;
+        for (StorageBackend backend : discover()) {
+            if (id.equalsIgnoreCase(backend.getId())) return backend;
+        }
+        return null;
+    }
+
+    /**
+     * Finds and opens a backend. Returns null (after logging why) if it is unknown,
+     * unavailable or fails to open.
+     */
+    public static StorageBackend open(String id, File configDir) {
+        StorageBackend backend = find(id);
+        if (backend == null) {
+            System.err.println("[StatusMod] Unknown storage backend '" + id + "'");
+            return null;
+        }
+        if (!backend.isAvailable()) {
+            System.err.println("[StatusMod] Storage backend '" + id + "' is not available in this installation");
+            return null;
+        }
+        try {
+            backend.open(configDir);
+            return backend;
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to open storage backend '" + id + "'");
+            e.printStackTrace();
+            backend.close();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.teufel.statusmod.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shared disk I/O for all StatusMod stores. Every write runs on one daemon thread
+ * ({@code StatusMod-IO}), so writes to the same file are naturally ordered and command
+ * handlers never wait on the disk. Stores mark themselves dirty and are committed together
+ * shortly after (group commit); {@link #drain()} is the barrier used on server stop.
+ */
+public final class StorageEngine {
+    private static final long GROUP_COMMIT_DELAY_MS = 50L;
+    private static final long RETRY_DELAY_MS = 1_000L;
+    private static final StorageEngine INSTANCE = new StorageEngine();
+
+    private final ScheduledExecutorService io;
+    private final List<Store> stores = new CopyOnWriteArrayList<>();
+    private final Set<Store> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean(false);
+
+    /**
+     * A file-backed store. {@link #commit()} is only ever called on the I/O thread.
+     */
+    interface Store {
+        String name();
+
+        void commit() throws Exception;
+    }
+
+    private StorageEngine() {
+        io = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StatusMod-IO");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static StorageEngine get() {
+        return INSTANCE;
+    }
+
+    void register(Store store) {
+        if (!stores.contains(store)) stores.add(store);
+    }
+
+    /**
+     * Queues a store for the next group commit. Cheap enough to call on every change.
+     */
+    void markDirty(Store store) {
+        dirty.add(store);
+        scheduleCommit(GROUP_COMMIT_DELAY_MS);
+    }
+
+    private void scheduleCommit(long delayMs) {
+        if (commitScheduled.compareAndSet(false, true)) {
+            io.schedule(this::commitDirty, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void commitDirty() {
+        commitScheduled.set(false);
+        List<Store> batch = new ArrayList<>(dirty);
+        boolean failed = false;
+        for (Store store : batch) {
+            // Removed before committing: a change made during the write marks the store again.
+            dirty.remove(store);
+            if (!commitQuietly(store)) {
+                dirty.add(store);
+                failed = true;
+            }
+        }
+        if (failed) scheduleCommit(RETRY_DELAY_MS);
+    }
+
+    private boolean commitQuietly(Store store) {
+        try {
+            store.commit();
+            return true;
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Failed to save " + store.name());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        return CompletableFuture.runAsync(task, io);
+    }
+
+    public <T> CompletableFuture<T> supply(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        io.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    void scheduleWithFixedDelay(Runnable task, long intervalMs) {
+        io.scheduleWithFixedDelay(task, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Waits until everything queued so far has run and every registered store has written its
+     * pending changes. Called from the loaders' server-stopping hooks.
+     */
+    public void drain() {
+        CompletableFuture<Void> barrier = submit(() -> {
+            dirty.clear();
+            for (Store store : stores) commitQuietly(store);
+        });
+        try {
+            barrier.get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[StatusMod] Storage drain did not complete");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes through a sibling {@code .tmp} file and moves it over the target, atomically where
+     * the file system supports it. With {@code storageFsync} the data is forced to disk before
+     * the move so a crash leaves either the old or the new file, never a truncated one.
+     */
+    static void writeAtomic(Path target, String content) throws IOException {
+        writeAtomic(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeAtomic(Path target, byte[] data) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) ch.write(buf);
+            if (fsyncEnabled()) ch.force(true);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception ignored) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static boolean fsyncEnabled() {
+        ModConfig cfg = com.teufel.statusmod.StatusMod.getConfig();
+        return cfg == null || cfg.storageFsync;
+    }
+
+    static void backupCorrupted(Path source, String backupName) {
+        try {
+            if (!Files.exists(source)) return;
+            Path backup = source.resolveSibling(backupName);
+            Files.copy(source, backup, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception ignored) {}
+    }
+}
@@ -18,14 +18,15 @@ public final class ColorMapper {
     private ColorMapper() {}
 
     public static boolean isAnimatedColorInput(String color) {
-        return color != null && (color.equalsIgnoreCase("rainbow") || color.equalsIgnoreCase("animated"));
+        ColorPalette palette = ColorPalette.parse(color);
+        return palette != null && palette.isAnimated();
     }
 
     public static boolean isValidColorInput(String color) {
         if (color == null || color.isBlank()) return false;
         String trimmed = color.trim().toLowerCase(Locale.ROOT);
         if (KEYS.contains(trimmed)) return true;
-        if (isAnimatedColorInput(color)) return true;
+        if (ColorPalette.parse(color) != null) return true;
         if (trimmed.startsWith("#")) {
             String hex = trimmed.substring(1);
             if (hex.length() == 3 || hex.length() == 6) {
@@ -38,8 +39,12 @@ public final class ColorMapper {
         return false;
     }
 
-    public static List<TextColor> parseColorPalette(String color) {
-        return isAnimatedColorInput(color) ? rainbowPalette() : List.of();
+    /**
+     * The palette for {@code rainbow}, {@code animated} and {@code gradient:...} inputs, null
+     * for single colors.
+     */
+    public static ColorPalette parseColorPalette(String color) {
+        return ColorPalette.parse(color);
     }
 
     public static TextColor parseDirectColor(String color) {
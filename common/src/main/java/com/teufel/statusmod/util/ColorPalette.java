@@ -0,0 +1,204 @@
+package com.teufel.statusmod.util;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.network.chat.Style;
+import net.minecraft.network.chat.TextColor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A multi-color palette with its colors baked into a lookup table when it is parsed, so
+ * coloring a character is an index computation instead of interpolating colors:
+ * <ul>
+ *   <li>{@code rainbow} / {@code animated}: red, green and blue cycling along the text, one
+ *   color per character, moving with time</li>
+ *   <li>{@code gradient:<c1>:<c2>[:<c3>...]}: a static gradient from the first to the last
+ *   color across the whole text</li>
+ *   <li>{@code gradient:<c1>:<c2>[...]:<speed>}: the colors cycle across the text and move by
+ *   {@code speed} colors per second; a negative speed moves the other way</li>
+ * </ul>
+ * Colors are hex ({@code #rrggbb}, {@code #rgb}) or named chat colors. Movement is driven by
+ * the server tick, so the same tick always gives the same frame. Palettes are immutable and
+ * shared; the last {@link #MAX_CACHED} palette inputs are kept parsed, least recently used
+ * first out. Inputs that cannot be palettes (single colors) are answered without the cache.
+ */
+public final class ColorPalette {
+    /** Table entries between two palette colors. */
+    static final int SEGMENT = 16;
+    static final int MAX_COLORS = 16;
+    static final double MAX_SPEED = 20.0;
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int MAX_CACHED = 256;
+    private static final ColorPalette INVALID = new ColorPalette(new int[] { 0 }, false, 0, 0.0);
+    private static final Map<String, ColorPalette> PARSED = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ColorPalette> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    /** The original three-color rainbow, about one color step every 180 ms. */
+    private static final ColorPalette RAINBOW = new ColorPalette(bake(new int[] { 0xFF0000, 0x00FF00, 0x0000FF }, true), true, SEGMENT, (1000.0 / 180.0) * SEGMENT / TICKS_PER_SECOND);
+
+    private final Style[] styles;
+    private final boolean cyclic;
+    /** Table entries between neighboring characters; 0 spreads the table over the text. */
+    private final int charStep;
+    /** Signed table entries per tick; 0 for a static palette. */
+    private final double entriesPerTick;
+
+    private ColorPalette(int[] lut, boolean cyclic, int charStep, double entriesPerTick) {
+        this.styles = new Style[lut.length];
+        for (int i = 0; i < lut.length; i++) {
+            styles[i] = i > 0 && lut[i] == lut[i - 1] ? styles[i - 1] : Style.EMPTY.withColor(TextColor.fromRgb(lut[i]));
+        }
+        this.cyclic = cyclic;
+        this.charStep = charStep;
+        this.entriesPerTick = entriesPerTick;
+    }
+
+    /**
+     * The palette for a color input, or null if it is not a palette (a single color, or
+     * invalid).
+     */
+    public static ColorPalette parse(String input) {
+        if (input == null || !maybePalette(input)) return null;
+        ColorPalette cached;
+        synchronized (PARSED) {
+            cached = PARSED.get(input);
+        }
+        if (cached == null) {
+            cached = parseUncached(input.trim());
+            if (cached == null) cached = INVALID;
+            synchronized (PARSED) {
+                PARSED.put(input, cached);
+            }
+        }
+        return cached == INVALID ? null : cached;
+    }
+
+    private static boolean maybePalette(String input) {
+        String s = input.trim();
+        return s.regionMatches(true, 0, "gradient:", 0, 9) || s.equalsIgnoreCase("rainbow") || s.equalsIgnoreCase("animated");
+    }
+
+    public boolean isAnimated() {
+        return entriesPerTick != 0.0;
+    }
+
+    /**
+     * Table offset at the given server tick; always 0 for a static palette.
+     */
+    public int offset(long tick) {
+        if (!cyclic || entriesPerTick == 0.0) return 0;
+        return Math.floorMod(Math.round(tick * entriesPerTick), styles.length);
+    }
+
+    /**
+     * Number of different offsets, i.e. frames in one animation cycle.
+     */
+    public int frames() {
+        return isAnimated() ? styles.length : 1;
+    }
+
+    /**
+     * Colors {@code text} at the given offset. Neighboring characters of the same color share
+     * one component.
+     */
+    public Component render(String text, int offset) {
+        MutableComponent out = Component.empty();
+        if (text == null || text.isEmpty()) return out;
+        int length = text.codePointCount(0, text.length());
+        StringBuilder run = new StringBuilder();
+        Style runStyle = null;
+        int i = 0;
+        for (int off = 0; off < text.length();) {
+            int cp = text.codePointAt(off);
+            off += Character.charCount(cp);
+            Style style = styles[index(i++, length, offset)];
+            if (style != runStyle && run.length() > 0) {
+                out.append(Component.literal(run.toString()).setStyle(runStyle));
+                run.setLength(0);
+            }
+            runStyle = style;
+            run.appendCodePoint(cp);
+        }
+        out.append(Component.literal(run.toString()).setStyle(runStyle));
+        return out;
+    }
+
+    private int index(int charIndex, int length, int offset) {
+        int size = styles.length;
+        if (!cyclic) return length <= 1 ? 0 : (int) ((long) charIndex * (size - 1) / (length - 1));
+        int base = charStep > 0 ? charIndex * charStep : (int) ((long) charIndex * size / length);
+        return Math.floorMod(base + offset, size);
+    }
+
+    private static ColorPalette parseUncached(String input) {
+        String lower = input.toLowerCase(Locale.ROOT);
+        if (lower.equals("rainbow") || lower.equals("animated")) return RAINBOW;
+        if (!lower.startsWith("gradient:")) return null;
+        String[] parts = input.substring("gradient:".length()).split(":", -1);
+        int count = parts.length;
+        double speed = 0.0;
+        if (count > 0 && isNumber(parts[count - 1])) {
+            speed = Double.parseDouble(parts[count - 1]);
+            if (Double.isNaN(speed) || Math.abs(speed) > MAX_SPEED) return null;
+            count--;
+        }
+        if (count < 2 || count > MAX_COLORS) return null;
+        List<Integer> colors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Integer rgb = parseColor(parts[i]);
+            if (rgb == null) return null;
+            colors.add(rgb);
+        }
+        int[] stops = colors.stream().mapToInt(Integer::intValue).toArray();
+        if (speed == 0.0) return new ColorPalette(bake(stops, false), false, 0, 0.0);
+        return new ColorPalette(bake(stops, true), true, 0, speed * SEGMENT / TICKS_PER_SECOND);
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.isEmpty() || s.startsWith("#")) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '.' && !(i == 0 && c == '-')) return false;
+        }
+        return !s.equals("-") && !s.equals(".");
+    }
+
+    private static Integer parseColor(String s) {
+        TextColor hex = ColorMapper.parseDirectColor(s);
+        if (hex != null) return hex.getValue();
+        ChatFormatting named = ColorMapper.get(s);
+        return named == null ? null : named.getColor();
+    }
+
+    /**
+     * Interpolates the stops into the table: {@link #SEGMENT} entries per pair of neighboring
+     * stops, and back from the last to the first one if the palette cycles.
+     */
+    private static int[] bake(int[] stops, boolean cyclic) {
+        int segments = cyclic ? stops.length : stops.length - 1;
+        int[] lut = new int[segments * SEGMENT + (cyclic ? 0 : 1)];
+        for (int s = 0; s < segments; s++) {
+            int from = stops[s];
+            int to = stops[(s + 1) % stops.length];
+            for (int k = 0; k < SEGMENT; k++) lut[s * SEGMENT + k] = lerp(from, to, k / (double) SEGMENT);
+        }
+        if (!cyclic) lut[lut.length - 1] = stops[stops.length - 1];
+        return lut;
+    }
+
+    private static int lerp(int from, int to, double t) {
+        int r = (int) Math.round(((from >> 16) & 0xFF) + (((to >> 16) & 0xFF) - ((from >> 16) & 0xFF)) * t);
+        int g = (int) Math.round(((from >> 8) & 0xFF) + (((to >> 8) & 0xFF) - ((from >> 8) & 0xFF)) * t);
+        int b = (int) Math.round((from & 0xFF) + ((to & 0xFF) - (from & 0xFF)) * t);
+        return (r << 16) | (g << 8) | b;
+    }
+}
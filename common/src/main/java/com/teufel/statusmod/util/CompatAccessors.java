@@ -0,0 +1,190 @@
+package com.teufel.statusmod.util;
+
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Accessors whose name or signature differs between Minecraft versions, resolved once when the
+ * mod starts instead of looked up by reflection on every call. Each accessor is probed in order
+ * of preference, the first one that exists is kept as a {@link MethodHandle} adapted to a fixed
+ * type, and the outcome is logged. An accessor that was not found is null; callers then use
+ * their fallback value.
+ */
+public final class CompatAccessors {
+    /** {@code (ServerPlayer) -> Object}: the player's level. */
+    static final MethodHandle PLAYER_LEVEL;
+    /** {@code (Object level) -> Object}: the level's dimension key. */
+    static final MethodHandle LEVEL_DIMENSION;
+    /** {@code (ServerPlayer) -> MinecraftServer} */
+    static final MethodHandle PLAYER_SERVER;
+    /** {@code (ServerGamePacketListenerImpl) -> int}: ping in milliseconds. */
+    static final MethodHandle CONNECTION_LATENCY;
+    /** {@code (CommandSourceStack) -> Object}: the source's level, null for the console on some versions. */
+    static final MethodHandle SOURCE_LEVEL;
+    /** {@code (CommandSourceStack, int) -> boolean} */
+    static final MethodHandle SOURCE_PERMISSION_LEVEL;
+    /** {@code (ServerPlayer, int) -> boolean}, every variant that exists; any one granting is enough. */
+    static final MethodHandle[] PLAYER_PERMISSION_LEVEL;
+    /** {@code (CommandSourceStack, Component, boolean) -> void} */
+    static final MethodHandle SEND_SUCCESS;
+
+    private static final MethodHandles.Lookup PUBLIC = MethodHandles.publicLookup();
+
+    static {
+        PLAYER_LEVEL = log("player level",
+            method(ServerPlayer.class, "level", MethodType.methodType(Object.class, ServerPlayer.class)),
+            method(ServerPlayer.class, "getLevel", MethodType.methodType(Object.class, ServerPlayer.class)),
+            field(ServerPlayer.class, "level", MethodType.methodType(Object.class, ServerPlayer.class)));
+        Class<?> levelType = PLAYER_LEVEL == null ? null : levelType();
+        LEVEL_DIMENSION = log("level dimension",
+            levelType == null ? null : method(levelType, "dimension", MethodType.methodType(Object.class, Object.class)));
+        PLAYER_SERVER = log("player server",
+            method(ServerPlayer.class, "getServer", MethodType.methodType(MinecraftServer.class, ServerPlayer.class)),
+            levelServer());
+        CONNECTION_LATENCY = log("connection latency",
+            method(ServerGamePacketListenerImpl.class, "latency", MethodType.methodType(int.class, ServerGamePacketListenerImpl.class)),
+            method(ServerGamePacketListenerImpl.class, "getLatency", MethodType.methodType(int.class, ServerGamePacketListenerImpl.class)),
+            field(ServerGamePacketListenerImpl.class, "latency", MethodType.methodType(int.class, ServerGamePacketListenerImpl.class)));
+        SOURCE_LEVEL = log("command source level",
+            method(CommandSourceStack.class, "getLevel", MethodType.methodType(Object.class, CommandSourceStack.class)));
+        MethodType sourcePermission = MethodType.methodType(boolean.class, CommandSourceStack.class, int.class);
+        SOURCE_PERMISSION_LEVEL = log("command source permission level",
+            method(CommandSourceStack.class, "hasPermission", sourcePermission),
+            method(CommandSourceStack.class, "hasPermissionLevel", sourcePermission));
+        MethodType playerPermission = MethodType.methodType(boolean.class, ServerPlayer.class, int.class);
+        List<MethodHandle> found = new ArrayList<>();
+        for (String name : new String[] { "hasPermissions", "hasPermissionLevel", "hasPermission" }) {
+            Probe p = method(ServerPlayer.class, name, playerPermission);
+            if (p != null) found.add(p.handle);
+            System.out.println("[StatusMod] Compat: player permission level " + (p == null ? "-> ServerPlayer." + name + "(int) not available" : "-> " + p.description));
+        }
+        PLAYER_PERMISSION_LEVEL = found.toArray(new MethodHandle[0]);
+        SEND_SUCCESS = log("command feedback", sendSuccessSupplier(),
+            method(CommandSourceStack.class, "sendSuccess", MethodType.methodType(void.class, CommandSourceStack.class, Component.class, boolean.class)),
+            sendSystemMessage());
+    }
+
+    private CompatAccessors() {}
+
+    /**
+     * Resolves and logs all accessors. Called once from mod initialization; the accessors are
+     * resolved on first use if this was not called.
+     */
+    public static void init() {
+        // Loading the class runs the probes.
+    }
+
+    private record Probe(MethodHandle handle, String description) {}
+
+    /**
+     * The first probe that was found, logged under {@code what}.
+     */
+    private static MethodHandle log(String what, Probe... probes) {
+        for (Probe p : probes) {
+            if (p == null) continue;
+            System.out.println("[StatusMod] Compat: " + what + " -> " + p.description);
+            return p.handle;
+        }
+        System.out.println("[StatusMod] Compat: " + what + " -> not available, using fallback");
+        return null;
+    }
+
+    /**
+     * A public method {@code name} on {@code owner} (or inherited) with the parameters of
+     * {@code type} after the receiver, adapted to {@code type}; null if there is none or its
+     * return type does not convert.
+     */
+    private static Probe method(Class<?> owner, String name, MethodType type) {
+        try {
+            Class<?>[] params = type.dropParameterTypes(0, 1).parameterArray();
+            java.lang.reflect.Method m = owner.getMethod(name, params);
+            MethodHandle h = PUBLIC.unreflect(m).asType(type);
+            return new Probe(h, owner.getSimpleName() + "." + name + "()");
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * A field {@code name} declared on {@code owner} or one of its superclasses, made accessible
+     * once; null if there is none.
+     */
+    private static Probe field(Class<?> owner, String name, MethodType type) {
+        for (Class<?> c = owner; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field f = c.getDeclaredField(name);
+                f.setAccessible(true);
+                MethodHandle h = MethodHandles.lookup().unreflectGetter(f).asType(type);
+                return new Probe(h, c.getSimpleName() + "#" + name + " (field)");
+            } catch (NoSuchFieldException ignored) {
+            } catch (Throwable t) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Class<?> levelType() {
+        try {
+            return ServerPlayer.class.getMethod("level").getReturnType();
+        } catch (Throwable ignored) {}
+        try {
+            return ServerPlayer.class.getMethod("getLevel").getReturnType();
+        } catch (Throwable ignored) {}
+        for (Class<?> c = ServerPlayer.class; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField("level").getType();
+            } catch (Throwable ignored) {}
+        }
+        return null;
+    }
+
+    /**
+     * {@code player.level().getServer()} for versions without {@code ServerPlayer.getServer()}.
+     */
+    private static Probe levelServer() {
+        Class<?> levelType = levelType();
+        if (PLAYER_LEVEL == null || levelType == null) return null;
+        Probe server = method(levelType, "getServer", MethodType.methodType(MinecraftServer.class, Object.class));
+        if (server == null) return null;
+        return new Probe(MethodHandles.filterReturnValue(PLAYER_LEVEL, server.handle), "level()." + server.description);
+    }
+
+    /**
+     * {@code sendSuccess(Supplier<Component>, boolean)} taking the component directly.
+     */
+    private static Probe sendSuccessSupplier() {
+        Probe p = method(CommandSourceStack.class, "sendSuccess", MethodType.methodType(void.class, CommandSourceStack.class, Supplier.class, boolean.class));
+        if (p == null) return null;
+        try {
+            MethodHandle supply = MethodHandles.lookup().findStatic(CompatAccessors.class, "supply", MethodType.methodType(Supplier.class, Component.class));
+            return new Probe(MethodHandles.filterArguments(p.handle, 1, supply), "CommandSourceStack.sendSuccess(Supplier)");
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * {@code sendSystemMessage(Component)}, ignoring the broadcast flag.
+     */
+    private static Probe sendSystemMessage() {
+        Probe p = method(CommandSourceStack.class, "sendSystemMessage", MethodType.methodType(void.class, CommandSourceStack.class, Component.class));
+        if (p == null) return null;
+        return new Probe(MethodHandles.dropArguments(p.handle, 2, boolean.class), p.description + " (without broadcast)");
+    }
+
+    private static Supplier<Component> supply(Component message) {
+        return () -> message;
+    }
+}
@@ -0,0 +1,97 @@
+package com.teufel.statusmod.util;
+
+import com.teufel.statusmod.StatusMod;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Built-in instrumentation for {@code /status debug perf}. Each measured phase has a
+ * {@link LatencyHistogram}; a few events are plain counters. Switched on with
+ * {@code perfStats} in the config. While it is off, {@link #start} is a config check and
+ * {@link #record} returns at once, so call sites can stay in hot paths:
+ * <pre>
+ * long t = Perf.start();
+ * ...
+ * Perf.record(Perf.Phase.APPLY, t);
+ * </pre>
+ */
+public final class Perf {
+    public enum Phase {
+        TICK("Tick gesamt"),
+        ANIMATION("Animationen"),
+        EXPIRY("Ablauf (Mute/Status)"),
+        AFK("AFK"),
+        RESOLVE("Status auflösen"),
+        APPLY("Rendern + Scoreboard"),
+        STORAGE_SAVE("Speichern"),
+        STORAGE_LOAD("Laden"),
+        AUDIT_LOG("Audit-Log"),
+        PERMISSION("Rechteprüfung");
+
+        public final String label;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public LatencyHistogram histogram() {
+            return histogram;
+        }
+    }
+
+    public enum Counter {
+        APPLY_SKIPPED("Scoreboard unverändert übersprungen"),
+        AFK_WAKEUPS("AFK verlassen"),
+        RENDER_CACHE_HITS("Render-Cache Treffer"),
+        RENDER_CACHE_MISSES("Render-Cache Fehlzugriffe");
+
+        public final String label;
+        final AtomicLong value = new AtomicLong();
+
+        Counter(String label) {
+            this.label = label;
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    private static volatile long sinceMs = System.currentTimeMillis();
+
+    private Perf() {}
+
+    public static boolean isEnabled() {
+        var cfg = StatusMod.config;
+        return cfg != null && cfg.perfStats;
+    }
+
+    /**
+     * Start time for {@link #record}, or 0 if instrumentation is off.
+     */
+    public static long start() {
+        return isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    public static void record(Phase phase, long start) {
+        if (start != 0L) phase.histogram.record(System.nanoTime() - start);
+    }
+
+    public static void count(Counter counter) {
+        if (isEnabled()) counter.value.incrementAndGet();
+    }
+
+    /**
+     * When the numbers were last reset (or the server started).
+     */
+    public static long sinceMs() {
+        return sinceMs;
+    }
+
+    public static void reset() {
+        for (Phase p : Phase.values()) p.histogram.reset();
+        for (Counter c : Counter.values()) c.value.set(0L);
+        sinceMs = System.currentTimeMillis();
+    }
+}
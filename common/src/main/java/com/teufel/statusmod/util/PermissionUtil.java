@@ -42,6 +42,33 @@ public class PermissionUtil {
     }
 
     public static boolean hasStatusPermission(CommandSourceStack src) {
+        long t = Perf.start();
+        try {
+            return checkStatusPermission(src);
+        } finally {
+            Perf.record(Perf.Phase.PERMISSION, t);
+        }
+    }
+
+    public static boolean hasAdminPermission(CommandSourceStack src) {
+        long t = Perf.start();
+        try {
+            return checkAdminPermission(src);
+        } finally {
+            Perf.record(Perf.Phase.PERMISSION, t);
+        }
+    }
+
+    public static boolean hasAdminPermission(ServerPlayer player) {
+        long t = Perf.start();
+        try {
+            return checkAdminPermission(player);
+        } finally {
+            Perf.record(Perf.Phase.PERMISSION, t);
+        }
+    }
+
+    private static boolean checkStatusPermission(CommandSourceStack src) {
         ServerPlayer player = null;
         try { player = src.getPlayer(); } catch (Exception ignored) {}
         boolean op = hasOperatorPermission(src);
@@ -51,7 +78,7 @@ public class PermissionUtil {
         return op;
     }
 
-    public static boolean hasAdminPermission(CommandSourceStack src) {
+    private static boolean checkAdminPermission(CommandSourceStack src) {
         ServerPlayer player = null;
         try { player = src.getPlayer(); } catch (Exception ignored) {}
         boolean op = hasOperatorPermission(src);
@@ -61,7 +88,7 @@ public class PermissionUtil {
         return op;
     }
 
-    public static boolean hasAdminPermission(ServerPlayer player) {
+    private static boolean checkAdminPermission(ServerPlayer player) {
         if (player == null) return false;
         try {
             if (luckypermsAvailable && luckypermsApi != null) {
@@ -104,11 +131,12 @@ public class PermissionUtil {
             Object server = null;
             try { server = src.getServer(); } catch (Exception ignored) {}
             if (server == null) return false;
-            try {
-                java.lang.reflect.Method getLevel = src.getClass().getMethod("getLevel");
-                Object level = getLevel.invoke(src);
-                if (level != null) return false;
-            } catch (Exception ignored) {}
+            if (CompatAccessors.SOURCE_LEVEL != null) {
+                try {
+                    Object level = (Object) CompatAccessors.SOURCE_LEVEL.invokeExact(src);
+                    if (level != null) return false;
+                } catch (Throwable ignored) {}
+            }
             return true;
         } catch (Exception ignored) {
             return false;
@@ -148,14 +176,11 @@ public class PermissionUtil {
             if (currentName == null || currentName.isBlank()) return false;
             long now = System.currentTimeMillis();
             if ((now - lastOpsFileReadAt) > OPS_FILE_CACHE_MS) {
-                try {
-                    java.lang.reflect.Method m = player.getClass().getMethod("getServer");
-                    net.minecraft.server.MinecraftServer server = (net.minecraft.server.MinecraftServer) m.invoke(player);
-                    if (server != null) {
-                        reloadOpsFileCache(server);
-                        lastOpsFileReadAt = now;
-                    }
-                } catch (Exception ignored) {}
+                MinecraftServer server = CompatUtil.getServer(player);
+                if (server != null) {
+                    reloadOpsFileCache(server);
+                    lastOpsFileReadAt = now;
+                }
             }
             String key = currentName.toLowerCase();
             if (!cachedOpsNames.contains(key)) return false;
@@ -202,29 +227,19 @@ public class PermissionUtil {
     }
 
     private static boolean hasSourcePermissionLevel(CommandSourceStack src, int level) {
-        if (src == null) return false;
+        if (src == null || CompatAccessors.SOURCE_PERMISSION_LEVEL == null) return false;
         try {
-            java.lang.reflect.Method m = src.getClass().getMethod("hasPermission", int.class);
-            Object r = m.invoke(src, level);
-            return (r instanceof Boolean b) && b;
-        } catch (Exception ignored) {}
-        try {
-            java.lang.reflect.Method m = src.getClass().getMethod("hasPermissionLevel", int.class);
-            Object r = m.invoke(src, level);
-            return (r instanceof Boolean b) && b;
-        } catch (Exception ignored) {}
+            return (boolean) CompatAccessors.SOURCE_PERMISSION_LEVEL.invokeExact(src, level);
+        } catch (Throwable ignored) {}
         return false;
     }
 
     private static boolean hasPlayerPermissionLevel(ServerPlayer player, int level) {
         if (player == null) return false;
-        String[] candidates = new String[]{"hasPermissions", "hasPermissionLevel", "hasPermission"};
-        for (String name : candidates) {
+        for (java.lang.invoke.MethodHandle h : CompatAccessors.PLAYER_PERMISSION_LEVEL) {
             try {
-                java.lang.reflect.Method m = player.getClass().getMethod(name, int.class);
-                Object r = m.invoke(player, level);
-                if (r instanceof Boolean b && b) return true;
-            } catch (Exception ignored) {}
+                if ((boolean) h.invokeExact(player, level)) return true;
+            } catch (Throwable ignored) {}
         }
         return false;
     }
@@ -0,0 +1,150 @@
+package com.teufel.statusmod.util;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.stats.Stats;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Registry of the placeholders a status can contain ({@code {ping}}, {@code {world}}, ...).
+ * Every provider declares how often its value may change; a value is only fetched again once
+ * that time has passed, and is cached per player in between. Other mods can add their own
+ * with {@link #register}.
+ */
+public final class StatusPlaceholders {
+    public static final class Provider {
+        final int id;
+        public final String name;
+        public final long refreshMs;
+        final Function<ServerPlayer, String> value;
+
+        Provider(int id, String name, long refreshMs, Function<ServerPlayer, String> value) {
+            this.id = id;
+            this.name = name;
+            this.refreshMs = refreshMs;
+            this.value = value;
+        }
+    }
+
+    private static final List<Provider> providers = new CopyOnWriteArrayList<>();
+    private static final Map<String, Provider> byName = new ConcurrentHashMap<>();
+    private static final Map<UUID, PlayerValues> values = new ConcurrentHashMap<>();
+
+    static {
+        register("world", 1_000L, player -> {
+            String key = CompatUtil.getWorldKey(player);
+            return key == null ? "" : key;
+        });
+        register("dimension", 1_000L, player -> dimensionName(CompatUtil.getWorldKey(player)));
+        register("ping", 5_000L, player -> String.valueOf(StatusTextUtil.getPing(player)));
+        register("health", 1_000L, player -> String.valueOf((int) Math.ceil(player.getHealth())));
+        register("playtime", 60_000L, player -> formatPlaytime(player.getStats().getValue(Stats.CUSTOM.get(Stats.PLAY_TIME))));
+        register("tps", 5_000L, player -> {
+            MinecraftServer server = player.level().getServer();
+            if (server == null) return "";
+            double tickNanos = Math.max(1.0, server.getAverageTickTimeNanos());
+            return String.format(Locale.ROOT, "%.1f", Math.min(20.0, 1_000_000_000.0 / tickNanos));
+        });
+        register("online", 5_000L, player -> {
+            MinecraftServer server = player.level().getServer();
+            return server == null ? "" : String.valueOf(server.getPlayerCount());
+        });
+    }
+
+    private StatusPlaceholders() {}
+
+    /**
+     * Adds or replaces the placeholder {@code {name}}. Names are case-insensitive.
+     *
+     * @param refreshMs how long a value stays valid before it is fetched again
+     */
+    public static synchronized void register(String name, long refreshMs, Function<ServerPlayer, String> value) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Provider existing = byName.get(key);
+        Provider provider = new Provider(existing == null ? providers.size() : existing.id, key, Math.max(0L, refreshMs), value);
+        if (existing == null) providers.add(provider);
+        else providers.set(existing.id, provider);
+        byName.put(key, provider);
+        values.clear();
+        StatusTemplate.clearCache();
+    }
+
+    public static Provider get(String name) {
+        return name == null ? null : byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public static List<String> names() {
+        return providers.stream().map(p -> p.name).toList();
+    }
+
+    public static void forget(UUID uuid) {
+        if (uuid != null) values.remove(uuid);
+    }
+
+    public static void forgetAll() {
+        values.clear();
+    }
+
+    static PlayerValues valuesFor(ServerPlayer player) {
+        return values.computeIfAbsent(player.getUUID(), u -> new PlayerValues());
+    }
+
+    /**
+     * One player's cached placeholder values and the last text rendered from them.
+     */
+    static final class PlayerValues {
+        private String[] cached = new String[0];
+        private long[] validUntil = new long[0];
+        StatusTemplate lastTemplate;
+        String lastOutput;
+
+        /**
+         * Returns the provider's value, fetching it again if it expired; sets {@code changed[0]}
+         * if the value differs from the cached one.
+         */
+        String get(Provider provider, ServerPlayer player, long nowMs, boolean[] changed) {
+            int id = provider.id;
+            if (id >= cached.length) {
+                cached = Arrays.copyOf(cached, providers.size());
+                validUntil = Arrays.copyOf(validUntil, providers.size());
+            }
+            String old = cached[id];
+            if (old != null && nowMs < validUntil[id]) return old;
+            String fresh;
+            try {
+                fresh = provider.value.apply(player);
+            } catch (Exception e) {
+                fresh = "";
+            }
+            if (fresh == null) fresh = "";
+            validUntil[id] = nowMs + provider.refreshMs;
+            if (fresh.equals(old)) return old;
+            cached[id] = fresh;
+            changed[0] = true;
+            return fresh;
+        }
+    }
+
+    static String dimensionName(String worldKey) {
+        if (worldKey == null) return "";
+        String s = worldKey;
+        int slash = s.lastIndexOf('/');
+        if (slash >= 0) s = s.substring(slash + 1);
+        int colon = s.lastIndexOf(':');
+        if (colon >= 0) s = s.substring(colon + 1);
+        return s.replace("]", "").trim();
+    }
+
+    static String formatPlaytime(int ticks) {
+        long minutes = Math.max(0, ticks) / 20L / 60L;
+        return minutes >= 60 ? (minutes / 60) + "h " + (minutes % 60) + "m" : minutes + "m";
+    }
+}
@@ -0,0 +1,182 @@
+package com.teufel.statusmod.util;
+
+import com.teufel.statusmod.StatusMod;
+import com.teufel.statusmod.storage.ModConfig;
+import net.minecraft.network.chat.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Finished team prefix and suffix per distinct status rendering, so reapplying an unchanged
+ * status reuses the same components instead of transforming the font, parsing the color and
+ * building new components again. Keyed by everything the result depends on: the text after
+ * placeholders, color, font, brackets, position and whether the staff badge is shown. At most
+ * {@link #MAX_ENTRIES} renderings are kept, least recently used first out.
+ * <p>
+ * Animated colors are cached as well: each frame of the animation is built the first time it
+ * is shown and then looked up by its {@link ColorPalette#offset offset}. The staff badge comes
+ * from the config, so it is built once per loaded config and the cache starts over when the
+ * config is reloaded. The cached components are shared between players and must not be
+ * modified.
+ */
+public final class StatusRenderCache {
+    static final int MAX_ENTRIES = 1024;
+    /** Above this many frames (animated status and animated badge) frames are not kept. */
+    private static final int MAX_FRAMES = 1024;
+
+    public static final class Frame {
+        public final Component prefix;
+        public final Component suffix;
+
+        Frame(Component prefix, Component suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+
+    public static final class Rendered {
+        /** The status text after font and brackets. */
+        public final String text;
+        private final boolean beforeName;
+        /** Null unless the status color is animated; {@link #status} is used otherwise. */
+        private final ColorPalette palette;
+        private final Component status;
+        /** Null unless the badge color is animated; {@link #badge} is used otherwise. */
+        private final ColorPalette badgePalette;
+        private final String badgeText;
+        /** Null without a badge. */
+        private final Component badge;
+        private final Frame[] frames;
+
+        Rendered(String text, String colorKey, boolean beforeName, boolean badged, ModConfig cfg) {
+            this.text = text;
+            this.beforeName = beforeName;
+            ColorPalette p = ColorMapper.parseColorPalette(colorKey);
+            this.palette = p != null && p.isAnimated() ? p : null;
+            this.status = palette == null ? StatusColorUtil.applyColor(text, colorKey) : null;
+            ColorPalette bp = badged ? ColorMapper.parseColorPalette(badgeColor(cfg)) : null;
+            this.badgePalette = bp != null && bp.isAnimated() ? bp : null;
+            this.badgeText = badgeText(cfg);
+            this.badge = badged && badgePalette == null ? StatusRenderCache.badge(cfg) : null;
+            int count = (palette == null ? 1 : palette.frames()) * (badgePalette == null ? 1 : badgePalette.frames());
+            this.frames = count <= MAX_FRAMES ? new Frame[count] : null;
+        }
+
+        /**
+         * The prefix and suffix to show at the given animation frame tick; the same instances
+         * every time for a static status.
+         */
+        public synchronized Frame at(long frameTick) {
+            int offset = palette == null ? 0 : palette.offset(frameTick);
+            int badgeOffset = badgePalette == null ? 0 : badgePalette.offset(frameTick);
+            int index = offset * (badgePalette == null ? 1 : badgePalette.frames()) + badgeOffset;
+            Frame frame = frames == null ? null : frames[index];
+            if (frame != null) return frame;
+            Component full = palette == null ? status : palette.render(text, offset);
+            Component b = badgePalette == null ? badge : badgePalette.render(badgeText, badgeOffset);
+            if (b != null) full = full.copy().append(Component.literal(" ")).append(b);
+            frame = beforeName
+                ? new Frame(full.copy().append(Component.literal(" ")), Component.empty())
+                : new Frame(Component.empty(), Component.literal(" ").append(full));
+            if (frames != null) frames[index] = frame;
+            return frame;
+        }
+    }
+
+    private static final Map<Key, Rendered> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Rendered> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static ModConfig cachedFor;
+    private static Component badge;
+
+    private StatusRenderCache() {}
+
+    /**
+     * @param text the status after placeholders, before font and brackets
+     */
+    public static synchronized Rendered render(String text, String colorKey, String font, boolean brackets, boolean beforeName, boolean badged) {
+        ModConfig cfg = StatusMod.getConfig();
+        if (cfg != cachedFor) {
+            cache.clear();
+            badge = null;
+            cachedFor = cfg;
+        }
+        Key key = new Key(text, colorKey, font, brackets, beforeName, badged);
+        Rendered hit = cache.get(key);
+        if (hit != null) {
+            Perf.count(Perf.Counter.RENDER_CACHE_HITS);
+            return hit;
+        }
+        Perf.count(Perf.Counter.RENDER_CACHE_MISSES);
+        Rendered rendered = new Rendered(StatusTextUtil.decorate(text, font, brackets), colorKey, beforeName, badged, cfg);
+        cache.put(key, rendered);
+        return rendered;
+    }
+
+    public static synchronized int size() {
+        return cache.size();
+    }
+
+    public static synchronized void clear() {
+        cache.clear();
+        badge = null;
+        cachedFor = null;
+    }
+
+    static String badgeText(ModConfig cfg) {
+        return cfg == null || cfg.staffBadgeText == null ? "[STAFF]" : cfg.staffBadgeText;
+    }
+
+    static String badgeColor(ModConfig cfg) {
+        return cfg == null || cfg.staffBadgeColor == null ? "red" : cfg.staffBadgeColor;
+    }
+
+    /**
+     * The static staff badge of the current config. Called under the class lock.
+     */
+    private static Component badge(ModConfig cfg) {
+        if (badge == null) badge = StatusColorUtil.applyColor(badgeText(cfg), badgeColor(cfg));
+        return badge;
+    }
+
+    private static final class Key {
+        final String text;
+        final String colorKey;
+        final String font;
+        final boolean brackets;
+        final boolean beforeName;
+        final boolean badged;
+        final int hash;
+
+        Key(String text, String colorKey, String font, boolean brackets, boolean beforeName, boolean badged) {
+            this.text = text;
+            this.colorKey = colorKey;
+            this.font = font;
+            this.brackets = brackets;
+            this.beforeName = beforeName;
+            this.badged = badged;
+            int h = Objects.hashCode(text);
+            h = 31 * h + Objects.hashCode(colorKey);
+            h = 31 * h + Objects.hashCode(font);
+            this.hash = 31 * h + (brackets ? 4 : 0) + (beforeName ? 2 : 0) + (badged ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return hash == other.hash && brackets == other.brackets && beforeName == other.beforeName && badged == other.badged
+                && Objects.equals(text, other.text) && Objects.equals(colorKey, other.colorKey) && Objects.equals(font, other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
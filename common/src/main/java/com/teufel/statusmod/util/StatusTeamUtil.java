@@ -1,46 +1,80 @@
 package com.teufel.statusmod.util;
 
 import com.teufel.statusmod.StatusMod;
+import com.teufel.statusmod.lifecycle.AnimationScheduler;
 import com.teufel.statusmod.storage.ModConfig;
 import com.teufel.statusmod.storage.PlayerSettings;
-import net.minecraft.network.chat.Component;
 import net.minecraft.server.ServerScoreboard;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.scores.PlayerTeam;
 
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a player's status into their scoreboard team. Every prefix/suffix change is broadcast
+ * to all clients, so the inputs of the last render are remembered per player and an unchanged
+ * status does not touch the team at all. The prefix and suffix components come from
+ * {@link StatusRenderCache}.
+ */
 public final class StatusTeamUtil {
+    private static final Map<UUID, String> lastApplied = new ConcurrentHashMap<>();
+
     private StatusTeamUtil() {}
 
     public static void applyStatus(ServerScoreboard scoreboard, ServerPlayer player, PlayerSettings settings, String status, String colorKey, boolean isAdmin) {
+        applyStatus(scoreboard, player, settings, status, colorKey, isAdmin, false);
+    }
+
+    /**
+     * @param force write the team even if the same status was applied before
+     */
+    public static void applyStatus(ServerScoreboard scoreboard, ServerPlayer player, PlayerSettings settings, String status, String colorKey, boolean isAdmin, boolean force) {
         if (scoreboard == null || player == null || settings == null) return;
         String uuid = player.getUUID().toString();
         String teamName = "status_" + uuid.substring(0, 8);
-        PlayerTeam team = scoreboard.getPlayerTeam(teamName);
-        if (team == null) team = scoreboard.addPlayerTeam(teamName);
-        Component base = Component.literal(StatusTextUtil.renderStatusText(status, settings, player));
-        Component colored = StatusColorUtil.applyColor(base, colorKey);
-        Component finalComponent = colored;
+        String playerName = player.getScoreboardName();
         ModConfig cfg = StatusMod.getConfig();
-        if (isAdmin && cfg != null && cfg.enableStaffBadge) {
-            String badgeText = cfg.staffBadgeText == null ? "[STAFF]" : cfg.staffBadgeText;
-            String badgeColor = cfg.staffBadgeColor == null ? "red" : cfg.staffBadgeColor;
-            Component badge = StatusColorUtil.applyColor(Component.literal(badgeText), badgeColor);
-            finalComponent = colored.copy().append(Component.literal(" ")).append(badge);
-        }
-        if (settings.beforeName) {
-            team.setPlayerPrefix(finalComponent.copy().append(Component.literal(" ")));
-            team.setPlayerSuffix(Component.empty());
-        } else {
-            team.setPlayerPrefix(Component.empty());
-            team.setPlayerSuffix(Component.literal(" ").append(finalComponent));
+        boolean badged = isAdmin && cfg != null && cfg.enableStaffBadge;
+        String badgeText = StatusRenderCache.badgeText(badged ? cfg : null);
+        String badgeColor = StatusRenderCache.badgeColor(badged ? cfg : null);
+        StatusRenderCache.Rendered rendered = StatusRenderCache.render(StatusTextUtil.applyPlaceholders(status, player), colorKey, settings.fontStyle, settings.brackets, settings.beforeName, badged);
+        String text = rendered.text;
+        String fingerprint = text + '\u0000' + colorKey + '\u0000' + StatusColorUtil.animationFrame(colorKey) + '\u0000' + settings.beforeName
+            + (badged ? '\u0000' + badgeText + '\u0000' + badgeColor + '\u0000' + StatusColorUtil.animationFrame(badgeColor) : "");
+        AnimationScheduler.track(player.getUUID(), !text.isEmpty() && (ColorMapper.isAnimatedColorInput(colorKey) || (badged && ColorMapper.isAnimatedColorInput(badgeColor))));
+        PlayerTeam team = scoreboard.getPlayerTeam(teamName);
+        if (!force && team != null && scoreboard.getPlayersTeam(playerName) == team && fingerprint.equals(lastApplied.get(player.getUUID()))) {
+            Perf.count(Perf.Counter.APPLY_SKIPPED);
+            return;
         }
-        String playerName = player.getScoreboardName();
-        PlayerTeam existing = scoreboard.getPlayerTeam(playerName);
+        if (team == null) team = scoreboard.addPlayerTeam(teamName);
+        StatusRenderCache.Frame frame = rendered.at(AnimationScheduler.frameTick());
+        team.setPlayerPrefix(frame.prefix);
+        team.setPlayerSuffix(frame.suffix);
+        PlayerTeam existing = scoreboard.getPlayersTeam(playerName);
         if (existing != null && existing != team) {
             scoreboard.removePlayerFromTeam(playerName, existing);
         }
         if (existing != team) {
             scoreboard.addPlayerToTeam(playerName, team);
         }
+        lastApplied.put(player.getUUID(), fingerprint);
+    }
+
+    /**
+     * Drops what is remembered for a player who left, so the next join writes the team again.
+     */
+    public static void forget(UUID uuid) {
+        if (uuid != null) lastApplied.remove(uuid);
+    }
+
+    /**
+     * Makes the next apply for every player write the team again (server stop, resync).
+     */
+    public static void forgetAll() {
+        lastApplied.clear();
+        StatusRenderCache.clear();
     }
 }
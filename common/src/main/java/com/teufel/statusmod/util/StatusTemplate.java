@@ -0,0 +1,101 @@
+package com.teufel.statusmod.util;
+
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A status text split once into literal parts and {@link StatusPlaceholders placeholders}.
+ * Templates are compiled the first time a text is used and shared by every player with the
+ * same text. A text without placeholders renders to itself without any work; otherwise the
+ * text is only assembled again when one of the placeholder values changed, so an unchanged
+ * status renders to the same string instance. Unknown {@code {names}} stay as they are.
+ * At most {@link #MAX_CACHED} compiled texts are kept, least recently used first out, so the
+ * texts currently in use stay compiled however many different ones were ever set.
+ */
+public final class StatusTemplate {
+    private static final int MAX_CACHED = 4096;
+    private static final Map<String, StatusTemplate> COMPILED = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StatusTemplate> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final String source;
+    /** Literal parts, one more than there are placeholders. */
+    private final String[] literals;
+    private final StatusPlaceholders.Provider[] placeholders;
+
+    private StatusTemplate(String source, String[] literals, StatusPlaceholders.Provider[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    public static synchronized StatusTemplate compile(String text) {
+        String source = text == null ? "" : text;
+        StatusTemplate cached = COMPILED.get(source);
+        if (cached != null) return cached;
+        StatusTemplate compiled = parse(source);
+        COMPILED.put(source, compiled);
+        return compiled;
+    }
+
+    static synchronized void clearCache() {
+        COMPILED.clear();
+    }
+
+    public boolean isStatic() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * The text with the player's current placeholder values. Without a player, placeholders
+     * are left in. Server thread.
+     */
+    public String render(ServerPlayer player) {
+        if (placeholders.length == 0 || player == null) return source;
+        StatusPlaceholders.PlayerValues values = StatusPlaceholders.valuesFor(player);
+        long now = System.currentTimeMillis();
+        boolean[] changed = { values.lastTemplate != this };
+        String[] parts = new String[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) parts[i] = values.get(placeholders[i], player, now, changed);
+        if (!changed[0]) return values.lastOutput;
+        StringBuilder out = new StringBuilder(source.length() + 16);
+        for (int i = 0; i < placeholders.length; i++) out.append(literals[i]).append(parts[i]);
+        out.append(literals[placeholders.length]);
+        values.lastTemplate = this;
+        values.lastOutput = out.toString();
+        return values.lastOutput;
+    }
+
+    private static StatusTemplate parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<StatusPlaceholders.Provider> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            int open = source.indexOf('{', i);
+            int close = open < 0 ? -1 : source.indexOf('}', open + 1);
+            if (close < 0) break;
+            StatusPlaceholders.Provider provider = StatusPlaceholders.get(source.substring(open + 1, close));
+            if (provider == null) {
+                literal.append(source, i, open + 1);
+                i = open + 1;
+                continue;
+            }
+            literal.append(source, i, open);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            placeholders.add(provider);
+            i = close + 1;
+        }
+        literal.append(source, i, source.length());
+        literals.add(literal.toString());
+        return new StatusTemplate(source, literals.toArray(new String[0]), placeholders.toArray(new StatusPlaceholders.Provider[0]));
+    }
+}
@@ -16,11 +16,20 @@ public final class StatusTextUtil {
     }
 
     public static String renderStatusText(String rawStatus, PlayerSettings settings, ServerPlayer player) {
-        String status = rawStatus == null ? "" : rawStatus;
         String font = settings == null ? "normal" : settings.fontStyle;
         boolean brackets = settings != null && settings.brackets;
-        status = applyPlaceholders(status, player);
-        String transformed = FontMapper.apply(font, status);
+        return decorate(applyPlaceholders(rawStatus, player), font, brackets);
+    }
+
+    /**
+     * The status with its placeholders filled in; font and brackets are not applied yet.
+     */
+    static String applyPlaceholders(String rawStatus, ServerPlayer player) {
+        return StatusTemplate.compile(rawStatus).render(player);
+    }
+
+    static String decorate(String text, String font, boolean brackets) {
+        String transformed = FontMapper.apply(font, text == null ? "" : text);
         return (brackets ? "[" : "") + transformed + (brackets ? "]" : "");
     }
 
@@ -48,36 +57,11 @@ public final class StatusTextUtil {
         return color;
     }
 
-    private static String applyPlaceholders(String status, ServerPlayer player) {
-        if (status == null || status.isEmpty() || player == null) return status;
-        String out = status;
-        try {
-            String worldKey = CompatUtil.getWorldKey(player);
-            out = out.replace("{world}", worldKey == null ? "" : worldKey);
-        } catch (Exception ignored) {}
-        try {
-            out = out.replace("{ping}", String.valueOf(getPing(player)));
-        } catch (Exception ignored) {}
-        return out;
-    }
-
-    private static int getPing(ServerPlayer player) {
+    static int getPing(ServerPlayer player) {
+        if (player == null || player.connection == null || CompatAccessors.CONNECTION_LATENCY == null) return -1;
         try {
-            Object conn = player.connection;
-            if (conn != null) {
-                try {
-                    java.lang.reflect.Method m = conn.getClass().getMethod("getLatency");
-                    Object v = m.invoke(conn);
-                    if (v instanceof Number n) return n.intValue();
-                } catch (Exception ignored) {}
-                try {
-                    java.lang.reflect.Field f = conn.getClass().getDeclaredField("latency");
-                    f.setAccessible(true);
-                    Object v = f.get(conn);
-                    if (v instanceof Number n) return n.intValue();
-                } catch (Exception ignored) {}
-            }
-        } catch (Exception ignored) {}
+            return (int) CompatAccessors.CONNECTION_LATENCY.invokeExact(player.connection);
+        } catch (Throwable ignored) {}
         return -1;
     }
 }
@@ -8,9 +8,12 @@ import com.teufel.statusmod.command.SettingsCommand;
 import com.teufel.statusmod.command.StatusCommand;
 import com.teufel.statusmod.lifecycle.StatusLifecycle;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.message.v1.ServerMessageEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.api.ModInitializer;
+import net.minecraft.server.level.ServerPlayer;
 
 public final class StatusModFabric implements ModInitializer {
     @Override
@@ -25,6 +28,13 @@ public final class StatusModFabric implements ModInitializer {
         });
         ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> StatusLifecycle.onPlayerJoin(server, handler.getPlayer()));
         ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> StatusLifecycle.onPlayerDisconnect(handler.getPlayer()));
+        // Fabric API has no general command event; commands that send a message (/me, /msg,
+        // /say, ...) count here, anything else is picked up by the movement sampling.
+        ServerMessageEvents.CHAT_MESSAGE.register((message, sender, params) -> StatusLifecycle.onPlayerChat(sender));
+        ServerMessageEvents.COMMAND_MESSAGE.register((message, source, params) -> {
+            if (source.getEntity() instanceof ServerPlayer player) StatusLifecycle.onPlayerCommand(player);
+        });
         ServerTickEvents.END_SERVER_TICK.register(StatusLifecycle::onServerTick);
+        ServerLifecycleEvents.SERVER_STOPPING.register(StatusLifecycle::onServerStopping);
     }
 }
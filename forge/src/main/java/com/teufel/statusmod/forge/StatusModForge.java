@@ -9,7 +9,10 @@ import com.teufel.statusmod.command.StatusCommand;
 import com.teufel.statusmod.lifecycle.StatusLifecycle;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.CommandEvent;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.ServerChatEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.listener.SubscribeEvent;
@@ -45,8 +48,25 @@ public final class StatusModForge {
         }
     }
 
+    @SubscribeEvent
+    public void onChat(ServerChatEvent event) {
+        StatusLifecycle.onPlayerChat(event.getPlayer());
+    }
+
+    @SubscribeEvent
+    public void onCommand(CommandEvent event) {
+        if (event.getParseResults().getContext().getSource().getEntity() instanceof ServerPlayer player) {
+            StatusLifecycle.onPlayerCommand(player);
+        }
+    }
+
     @SubscribeEvent
     public void onServerTick(TickEvent.ServerTickEvent.Post event) {
         StatusLifecycle.onServerTick(event.server());
     }
+
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        StatusLifecycle.onServerStopping(event.getServer());
+    }
 }
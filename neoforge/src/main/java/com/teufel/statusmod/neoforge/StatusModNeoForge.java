@@ -12,7 +12,10 @@ import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.CommandEvent;
 import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import net.neoforged.neoforge.event.ServerChatEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
 import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 
@@ -46,8 +49,25 @@ public final class StatusModNeoForge {
         }
     }
 
+    @SubscribeEvent
+    public void onChat(ServerChatEvent event) {
+        StatusLifecycle.onPlayerChat(event.getPlayer());
+    }
+
+    @SubscribeEvent
+    public void onCommand(CommandEvent event) {
+        if (event.getParseResults().getContext().getSource().getEntity() instanceof ServerPlayer player) {
+            StatusLifecycle.onPlayerCommand(player);
+        }
+    }
+
     @SubscribeEvent
     public void onServerTick(ServerTickEvent.Post event) {
         StatusLifecycle.onServerTick(event.getServer());
     }
+
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        StatusLifecycle.onServerStopping(event.getServer());
+    }
 }